@@ -0,0 +1,525 @@
+package model;
+
+/**
+ * Minimax search with alpha-beta pruning for one thread. Several searchers
+ * 	can share one transposition table to search the same board in parallel.
+ * 	Scores are always from the maximizing color's point of view.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class AlphaBeta {
+
+	/** Deepest search supported. **/
+	public static final int MAX_DEPTH = 36;
+
+	/** Score of a won game. **/
+	public static final int WIN = 500;
+
+	private final char maxColor;
+	private final char minColor;
+	private final TranspositionTable table;
+
+	// One reusable move array and move ordering array per depth
+	private final int[][] moveLists;
+	private final int[][] orderLists;
+	private int rootDepth;
+	private int rootMove;
+
+	// Triangular principal variation: pv[ply] holds the best line found from
+	// distance ply to the end of the search, in pv[ply][ply..pvLength[ply])
+	private final int[][] pv;
+	private final int[] pvLength;
+
+	// Stopping
+	private long deadline;
+	private volatile boolean stopped;
+	private boolean aborted;
+	private long nodes;
+
+	// What the search did, counted by this thread alone so counting costs no synchronization
+	private long leafEvaluations;
+	private long tableProbes;
+	private long tableHits;
+
+	// Root moves of the running search with their scores, and of the last one that finished
+	private final int[] rootScores;
+	private final int[] lastRootMoves;
+	private final int[] lastRootScores;
+	private int lastRootCount;
+	
+	// Move ordering: two killer moves per distance from the root and a history
+	// score per packed move for each side, raised whenever the move prunes
+	private static final int HASH_MOVE = Integer.MAX_VALUE;
+	private static final int KILLER = Integer.MAX_VALUE - 2;
+	private final int[][] killers;
+	private final int[][] history;
+	private long cutoffs;
+	private long firstMoveCutoffs;
+
+	// Exact results of late boards, used at the leaves instead of the heuristic
+	private EndgameTable endgame;
+	private int endgameEmpty;
+
+	/**
+	 * Creates a searcher.
+	 *
+	 * @param maxColor color of the maximizing player
+	 * @param minColor color of the minimizing player
+	 * @param table transposition table, may be shared with other searchers
+	 */
+	public AlphaBeta(char maxColor, char minColor, TranspositionTable table) {
+		this.maxColor = maxColor;
+		this.minColor = minColor;
+		this.table = table;
+		moveLists = new int[MAX_DEPTH + 1][Move.COUNT];
+		orderLists = new int[MAX_DEPTH + 1][Move.COUNT];
+		pv = new int[MAX_DEPTH + 2][MAX_DEPTH + 2];
+		pvLength = new int[MAX_DEPTH + 2];
+		killers = new int[MAX_DEPTH + 1][2];
+		history = new int[2][Move.COUNT];
+		rootScores = new int[Move.COUNT];
+		lastRootMoves = new int[Move.COUNT];
+		lastRootScores = new int[Move.COUNT];
+		for (int[] k : killers) {
+			k[0] = Move.NONE;
+			k[1] = Move.NONE;
+		}
+		rootMove = Move.NONE;
+		deadline = Long.MAX_VALUE;
+		endgameEmpty = -1;
+	}
+
+	/**
+	 * Searches the board to the given depth. Depth 1 always finishes, deeper
+	 * 	searches stop early once the deadline passes or stop() is called.
+	 *
+	 * @param bs board to search, must not be over; restored when done
+	 * @param depth look-ahead
+	 * @param maxPlayer true if the maximizing color moves first
+	 * @return score of the board, meaningless if isAborted()
+	 */
+	public int search(BoardState bs, int depth, boolean maxPlayer) {
+		return search(bs, depth, maxPlayer, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Searches the board to the given depth inside a window. A score at or
+	 * 	below alpha, or at or above beta, only bounds the real score.
+	 *
+	 * @param bs board to search, must not be over; restored when done
+	 * @param depth look-ahead
+	 * @param maxPlayer true if the maximizing color moves first
+	 * @param alpha lower bound
+	 * @param beta upper bound
+	 * @return score of the board, meaningless if isAborted()
+	 */
+	public int search(BoardState bs, int depth, boolean maxPlayer, int alpha, int beta) {
+		rootDepth = depth;
+		rootMove = Move.NONE;
+		aborted = false;
+		return alphabeta(bs, depth, alpha, beta, maxPlayer);
+	}
+
+	/**
+	 * Minimax with alpha-beta pruning, as a principal variation search: only
+	 * 	the first (best ordered) move is searched with the full window. The
+	 * 	other moves are searched with a null window that can only tell whether
+	 * 	they are better than the first, and only searched again with the full
+	 * 	window if they are. Moves are played and taken back on the
+	 * 	given board in place, and each depth reuses its own move array, so the
+	 * 	search does not allocate. The best move found at the root is stored in
+	 * 	rootMove. Once the search is stopped, deeper searches than depth 1
+	 * 	return a meaningless score with aborted set.
+	 *
+	 * @param bs board to search, must not be over
+	 * @param depth remaining look-ahead
+	 * @param alpha lower bound
+	 * @param beta upper bound
+	 * @param maxPlayer true if it is the maximizing color's turn
+	 * @return score of the board for the maximizing color
+	 */
+	public int alphabeta(BoardState bs, int depth, int alpha, int beta, boolean maxPlayer) {
+		if ((++nodes & 1023) == 0 && rootDepth > 1 && (stopped || System.nanoTime() > deadline)) {
+			aborted = true;
+		}
+		int ply = rootDepth - depth;
+		pvLength[ply] = ply;
+		if (aborted) {
+			return 0;
+		} else if (depth == 0) {
+			if (bs.getEmptyCount() <= endgameEmpty) {
+				int result = endgame.probe(bs, maxPlayer ? maxColor : minColor);
+				if (result != ProofNumberSearch.UNKNOWN) {
+					int win = (result == ProofNumberSearch.DRAW) ? 0 : (result == ProofNumberSearch.WIN) ? WIN : -WIN;
+					return maxPlayer ? win : -win;
+				}
+			}
+			leafEvaluations++;
+			return bs.calculateHeuristic(maxColor);
+		}
+
+		// Reuse an earlier search of this board with the same color to move, or of
+		// 	a symmetric one, if it went deep enough
+		char color = maxPlayer ? maxColor : minColor;
+		int symmetry = bs.canonicalSymmetry();
+		long key = bs.getHash(symmetry) ^ (color == 'B' ? BoardState.BLACK_TO_MOVE : 0L);
+		long entry = table.probe(key);
+		int hashMove = Move.NONE;
+		tableProbes++;
+		if (entry != 0) {
+			tableHits++;
+			hashMove = Symmetry.transformMove(Symmetry.inverse(symmetry), TranspositionTable.move(entry));
+		}
+		if (entry != 0 && depth != rootDepth && TranspositionTable.depth(entry) >= depth) {
+			int score = TranspositionTable.score(entry);
+			int bound = TranspositionTable.bound(entry);
+			if (bound == TranspositionTable.EXACT
+					|| (bound == TranspositionTable.LOWER && score >= beta)
+					|| (bound == TranspositionTable.UPPER && score <= alpha)) {
+				return score;
+			}
+		}
+
+		int alphaOrig = alpha;
+		int betaOrig = beta;
+		int[] moves = moveLists[depth];
+		int count;
+		if (depth == rootDepth) {
+			count = bs.generateUniqueMoves(moves, color);
+		} else {
+			count = bs.generateMoves(moves, color);
+		}
+		int side = maxPlayer ? 0 : 1;
+		int[] order = orderLists[depth];
+		scoreMoves(moves, order, count, hashMove, ply, side);
+		int best;
+		int bestMove = Move.NONE;
+		int searched = 0;
+
+		if (maxPlayer) {	// Maximizing Player
+
+			int min = Integer.MIN_VALUE;
+
+			for (int i = 0; i < count; i++) {
+				nextMove(moves, order, i, count);
+				int score;
+				if (bs.makeMove(moves[i], color)) {
+					score = gameOverScore(bs);
+					pvLength[ply + 1] = ply + 1;
+				} else if (i == 0) {
+					score = alphabeta(bs, depth - 1, alpha, beta, false);
+				} else {
+					score = alphabeta(bs, depth - 1, alpha, alpha + 1, false);
+					if (score > alpha && score < beta) {
+						score = alphabeta(bs, depth - 1, alpha, beta, false);
+					}
+				}
+				bs.unmakeMove();
+				if (depth == rootDepth) {
+					rootScores[searched++] = score;
+				}
+
+				if (score > min) {
+					min = score;
+					bestMove = moves[i];
+					updatePv(ply, bestMove);
+				}
+				alpha = Math.max(alpha, min);
+
+				if (beta <= alpha) {
+					pruned(moves[i], i, depth, ply, side);
+					break; // Pruned
+				}
+			}
+
+			best = min;
+
+		} else {			// Minimizing Player
+
+			int max = Integer.MAX_VALUE;
+
+			for (int i = 0; i < count; i++) {
+				nextMove(moves, order, i, count);
+				int score;
+				if (bs.makeMove(moves[i], color)) {
+					score = gameOverScore(bs);
+					pvLength[ply + 1] = ply + 1;
+				} else if (i == 0) {
+					score = alphabeta(bs, depth - 1, alpha, beta, true);
+				} else {
+					score = alphabeta(bs, depth - 1, beta - 1, beta, true);
+					if (score < beta && score > alpha) {
+						score = alphabeta(bs, depth - 1, alpha, beta, true);
+					}
+				}
+				bs.unmakeMove();
+				if (depth == rootDepth) {
+					rootScores[searched++] = score;
+				}
+
+				if (score < max) {
+					max = score;
+					bestMove = moves[i];
+					updatePv(ply, bestMove);
+				}
+				beta = Math.min(beta, max);
+				if (beta <= alpha) {
+					pruned(moves[i], i, depth, ply, side);
+					break; // Pruned
+				}
+			}
+
+			best = max;
+		}
+
+		if (aborted) {
+			return 0;
+		}
+		if (depth == rootDepth) {
+			rootMove = bestMove;
+			lastRootCount = searched;
+			System.arraycopy(moves, 0, lastRootMoves, 0, searched);
+			System.arraycopy(rootScores, 0, lastRootScores, 0, searched);
+		}
+
+		int bound = TranspositionTable.EXACT;
+		if (best <= alphaOrig) {
+			bound = TranspositionTable.UPPER;
+		} else if (best >= betaOrig) {
+			bound = TranspositionTable.LOWER;
+		}
+		table.store(key, depth, bound, best, Symmetry.transformMove(symmetry, bestMove));
+
+		return best;
+	}
+
+	/**
+	 * Carries the move ordering over to a board the given number of moves
+	 * 	later in the same game. Killer moves move that many plies closer to the
+	 * 	root, so they stay with the boards they pruned at, and history scores
+	 * 	are halved, so prunes found on the new board soon count for more.
+	 *
+	 * @param plies moves played since the last search
+	 */
+	public void advance(int plies) {
+		for (int ply = 0; ply <= MAX_DEPTH; ply++) {
+			int from = ply + plies;
+			killers[ply][0] = (from <= MAX_DEPTH) ? killers[from][0] : Move.NONE;
+			killers[ply][1] = (from <= MAX_DEPTH) ? killers[from][1] : Move.NONE;
+		}
+		for (int[] hist : history) {
+			for (int i = 0; i < Move.COUNT; i++) {
+				hist[i] /= 2;
+			}
+		}
+	}
+
+	/**
+	 * Makes the best line from ply the given move followed by the best line
+	 * 	of the board after it.
+	 */
+	private void updatePv(int ply, int move) {
+		int[] line = pv[ply];
+		int[] rest = pv[ply + 1];
+		int length = pvLength[ply + 1];
+
+		line[ply] = move;
+		for (int i = ply + 1; i < length; i++) {
+			line[i] = rest[i];
+		}
+		pvLength[ply] = Math.max(length, ply + 1);
+	}
+
+	/**
+	 * Gives each move an ordering score: the transposition table's best move
+	 * 	first, then the killer moves of this distance from the root, then the
+	 * 	rest by history score.
+	 */
+	private void scoreMoves(int[] moves, int[] order, int count, int hashMove, int ply, int side) {
+		int[] killer = killers[ply];
+		int[] hist = history[side];
+		
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			if (move == hashMove) {
+				order[i] = HASH_MOVE;
+			} else if (move == killer[0]) {
+				order[i] = KILLER;
+			} else if (move == killer[1]) {
+				order[i] = KILLER - 1;
+			} else {
+				order[i] = hist[move];
+			}
+		}
+	}
+	
+	/**
+	 * Swaps the best scored move from i onwards into position i. Picking one
+	 * 	move at a time avoids sorting moves that are pruned anyway.
+	 */
+	private static void nextMove(int[] moves, int[] order, int i, int count) {
+		int best = i;
+		for (int j = i + 1; j < count; j++) {
+			if (order[j] > order[best]) {
+				best = j;
+			}
+		}
+		if (best != i) {
+			int move = moves[i];
+			moves[i] = moves[best];
+			moves[best] = move;
+			int score = order[i];
+			order[i] = order[best];
+			order[best] = score;
+		}
+	}
+	
+	/**
+	 * Remembers a move that pruned: as a killer move for its distance from the
+	 * 	root and in the history scores, weighted by the depth it pruned at.
+	 */
+	private void pruned(int move, int index, int depth, int ply, int side) {
+		cutoffs++;
+		if (index == 0) {
+			firstMoveCutoffs++;
+		}
+		
+		int[] killer = killers[ply];
+		if (killer[0] != move) {
+			killer[1] = killer[0];
+			killer[0] = move;
+		}
+		
+		int[] hist = history[side];
+		hist[move] += depth * depth;
+		if (hist[move] > KILLER / 2) {	// Keep history scores below the killers
+			for (int i = 0; i < Move.COUNT; i++) {
+				hist[i] /= 2;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the score of a finished board.
+	 *
+	 * @param bs finished board
+	 * @return WIN if the maximizing color won, -WIN if it lost, 0 on a tie
+	 */
+	private int gameOverScore(BoardState bs) {
+		if (bs.getWinner() == maxColor) {
+			return WIN;
+		} else if (bs.getWinner() == minColor) {
+			return -WIN;
+		}
+		return 0;
+	}
+
+	/**
+	 * Sets the table of exact results to use at the leaves.
+	 *
+	 * @param endgame endgame table
+	 */
+	public void setEndgameTable(EndgameTable endgame) {
+		this.endgame = endgame;
+		endgameEmpty = endgame.getMaxEmpty();
+	}
+
+	/**
+	 * Sets the time after which searches deeper than depth 1 stop.
+	 *
+	 * @param deadline System.nanoTime() value, Long.MAX_VALUE for none
+	 */
+	public void setDeadline(long deadline) {
+		this.deadline = deadline;
+	}
+
+	/** Stops the running search, or the next one if none is running. **/
+	public void stop() {
+		stopped = true;
+	}
+
+	/** Allows searching again after stop(). **/
+	public void resume() {
+		stopped = false;
+	}
+
+	/** Returns true if the last search was stopped before it finished. **/
+	public boolean isAborted() {
+		return aborted;
+	}
+
+	/** Returns the best move at the root of the last finished search. **/
+	public int getRootMove() {
+		return rootMove;
+	}
+
+	/**
+	 * Copies the best line of moves of the last finished search, starting with
+	 * 	the root move. Lines cut short by the transposition table are shorter
+	 * 	than the search depth.
+	 *
+	 * @param moves array of at least MAX_DEPTH + 1 entries
+	 * @return number of moves copied
+	 */
+	public int getPrincipalVariation(int[] moves) {
+		System.arraycopy(pv[0], 0, moves, 0, pvLength[0]);
+		return pvLength[0];
+	}
+
+	/**
+	 * Copies the root moves the last finished search tried, with their scores
+	 * 	for the maximizing color. Only the best move has an exact score; the
+	 * 	others were only shown to be no better, so their scores are bounds.
+	 * 	Moves left untried after a prune are not copied.
+	 *
+	 * @param moves array of at least Move.COUNT entries for the moves
+	 * @param scores array of at least Move.COUNT entries for their scores
+	 * @return number of moves copied
+	 */
+	public int getRootScores(int[] moves, int[] scores) {
+		System.arraycopy(lastRootMoves, 0, moves, 0, lastRootCount);
+		System.arraycopy(lastRootScores, 0, scores, 0, lastRootCount);
+		return lastRootCount;
+	}
+
+	/** Returns the number of boards visited since the last reset. **/
+	public long getNodes() {
+		return nodes;
+	}
+
+	/** Returns the number of searched boards that were pruned. **/
+	public long getCutoffs() {
+		return cutoffs;
+	}
+
+	/** Returns the number of searched boards that were pruned by their first move. **/
+	public long getFirstMoveCutoffs() {
+		return firstMoveCutoffs;
+	}
+
+	/** Returns the number of boards scored by the heuristic since the last reset. **/
+	public long getLeafEvaluations() {
+		return leafEvaluations;
+	}
+
+	/** Returns the number of transposition table lookups since the last reset. **/
+	public long getTableProbes() {
+		return tableProbes;
+	}
+
+	/** Returns the number of transposition table lookups that found an entry. **/
+	public long getTableHits() {
+		return tableHits;
+	}
+
+	/** Resets the visited board count and the other counts of what the search did. **/
+	public void resetNodes() {
+		nodes = 0;
+		cutoffs = 0;
+		firstMoveCutoffs = 0;
+		leafEvaluations = 0;
+		tableProbes = 0;
+		tableHits = 0;
+	}
+}
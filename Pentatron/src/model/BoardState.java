@@ -1,30 +1,247 @@
 package model;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.Random;
 
 /**
  * Holds a single board state of a 6 x 6 Pentago game.
+ * 	The board is stored as two 36 bit masks, one per color. Bit
+ * 	(block * 9 + pos) is set when that color has a tile on that position.
  *
  * @author Trevor N. Lowe
  * @version 1
  */
 public class BoardState implements Comparable<BoardState>{
 	
-	private char[][] board;
+	/** Mask of all 36 positions on the board. **/
+	static final long FULL = (1L << 36) - 1;
+	
+	/** Mask of the 9 positions of a single block. **/
+	static final int BLOCK = 0x1FF;
+	
+	/** Source position of each tile after a clockwise / counter-clockwise rotation. **/
+	private static final int[] SRC_R = {6, 3, 0, 7, 4, 1, 8, 5, 2};
+	private static final int[] SRC_L = {2, 5, 8, 1, 4, 7, 0, 3, 6};
+	
+	/** Rotated contents of a block, indexed by its current 9 bit contents. **/
+	static final short[] ROTATE_R = new short[512];
+	static final short[] ROTATE_L = new short[512];
+	
+	static {
+		for (int m = 0; m < 512; m++) {
+			int r = 0;
+			int l = 0;
+			for (int i = 0; i < 9; i++) {
+				r |= ((m >>> SRC_R[i]) & 1) << i;
+				l |= ((m >>> SRC_L[i]) & 1) << i;
+			}
+			ROTATE_R[m] = (short) r;
+			ROTATE_L[m] = (short) l;
+		}
+	}
+	
+	/** Every five-in-a-row on the board: 12 rows, 12 columns and 8 diagonals. **/
+	static final long[] LINES = new long[32];
+	
+	/** Bit set of all lines in LINES. **/
+	static final int ALL_LINES = 0xFFFFFFFF;
+	
+	/** Bit set of the lines that pass through each position. **/
+	static final int[] LINES_THROUGH_SQUARE = new int[36];
+	
+	/** Bit set of the lines that pass through each block. **/
+	static final int[] LINES_THROUGH_BLOCK = new int[4];
+	
+	static {
+		int n = 0;
+		for (int i = 0; i < 6; i++) {
+			for (int j = 0; j < 2; j++) {
+				LINES[n++] = line(i, j, 0, 1);	// Row
+				LINES[n++] = line(j, i, 1, 0);	// Column
+			}
+		}
+		for (int i = 0; i < 2; i++) {
+			for (int j = 0; j < 2; j++) {
+				LINES[n++] = line(i, j, 1, 1);		// Down diagonal
+				LINES[n++] = line(i, 5 - j, 1, -1);	// Up diagonal
+			}
+		}
+		
+		for (int i = 0; i < 32; i++) {
+			for (int sq = 0; sq < 36; sq++) {
+				if ((LINES[i] & (1L << sq)) != 0) {
+					LINES_THROUGH_SQUARE[sq] |= 1 << i;
+					LINES_THROUGH_BLOCK[sq / 9] |= 1 << i;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the bit index of a position given by row and column.
+	 * 
+	 * @param row row 0-5 from the top
+	 * @param col column 0-5 from the left
+	 * @return bit index (block * 9 + pos)
+	 */
+	static int square(int row, int col) {
+		return ((row / 3) * 2 + col / 3) * 9 + (row % 3) * 3 + col % 3;
+	}
+	
+	/** Builds the mask of five positions starting at (row, col) going in direction (dRow, dCol). **/
+	private static long line(int row, int col, int dRow, int dCol) {
+		long mask = 0L;
+		for (int i = 0; i < 5; i++) {
+			mask |= 1L << square(row + i * dRow, col + i * dCol);
+		}
+		return mask;
+	}
+	
+	/** Random key for each color (0 white, 1 black) on each position. **/
+	static final long[][] ZOBRIST = new long[2][36];
+	
+	/** Combined key of each possible contents of each block, per color. **/
+	private static final long[][][] ZOBRIST_BLOCK = new long[2][4][512];
+	
+	/**
+	 * Key a search XORs into the hash of a board with black to move, since the
+	 * 	same tiles can come up with either color to move. Not part of getHash(),
+	 * 	so the hashes of the book and table files stay the same.
+	 */
+	public static final long BLACK_TO_MOVE;
+	
+	static {
+		Random rand = new Random(0x50E7A7L);
+		for (int c = 0; c < 2; c++) {
+			for (int sq = 0; sq < 36; sq++) {
+				ZOBRIST[c][sq] = rand.nextLong();
+			}
+			for (int block = 0; block < 4; block++) {
+				for (int m = 1; m < 512; m++) {
+					int low = Integer.numberOfTrailingZeros(m);
+					ZOBRIST_BLOCK[c][block][m] = ZOBRIST_BLOCK[c][block][m & (m - 1)]
+							^ ZOBRIST[c][block * 9 + low];
+				}
+			}
+		}
+		BLACK_TO_MOVE = rand.nextLong();
+	}
+	
+	/** Positions that make a 2-in-a-row with each position. **/
+	static final long[] PAIRS = new long[36];
+	
+	static {
+		for (int block = 0; block < 4; block++) {
+			// Horizontal and vertical 2-in-a-rows inside a block
+			for (int pos = 0; pos < 9; pos++) {
+				if (pos % 3 < 2) {
+					addPair(block, pos, block, pos + 1);
+				}
+				if (pos < 6) {
+					addPair(block, pos, block, pos + 3);
+				}
+			}
+			// Diagonal 2-in-a-rows inside a block
+			addPair(block, 0, block, 4);
+			addPair(block, 1, block, 3);
+			addPair(block, 1, block, 5);
+			addPair(block, 2, block, 4);
+			addPair(block, 6, block, 4);
+			addPair(block, 7, block, 3);
+			addPair(block, 7, block, 5);
+			addPair(block, 8, block, 4);
+		}
+		
+		// Horizontal 2-in-a-rows across blocks
+		addPair(0, 2, 1, 0);
+		addPair(0, 5, 1, 3);
+		addPair(0, 8, 1, 6);
+		addPair(2, 2, 3, 0);
+		addPair(2, 5, 3, 3);
+		addPair(2, 8, 3, 6);
+		
+		// Vertical 2-in-a-rows across blocks
+		addPair(0, 6, 2, 0);
+		addPair(0, 7, 2, 1);
+		addPair(0, 8, 2, 2);
+		addPair(1, 6, 3, 0);
+		addPair(1, 7, 3, 1);
+		addPair(1, 8, 3, 2);
+		
+		// Diagonal 2-in-a-rows across the center
+		addPair(2, 2, 1, 6);
+		addPair(0, 8, 3, 0);
+	}
+	
+	/** Marks two positions as making a 2-in-a-row. **/
+	private static void addPair(int block1, int pos1, int block2, int pos2) {
+		PAIRS[block1 * 9 + pos1] |= 1L << (block2 * 9 + pos2);
+		PAIRS[block2 * 9 + pos2] |= 1L << (block1 * 9 + pos1);
+	}
+	
+	/** Set on a made move whose placement already won, so no block was rotated. **/
+	private static final int NO_ROTATION = 1 << 16;
+	
+	private long white;
+	private long black;
+	private long hash;
+	private int whitePairs;
+	private int blackPairs;
 	private char winningColor;
 	private int heuristic;
+	private Evaluator evaluator;
+	
+	// Moves made with makeMove, for unmakeMove
+	private int[] moveStack;
+	private int ply;
+	
+	// Boards already produced by the current generateMoves call, allocated on first use
+	private static final int SEEN_SIZE = 512;
+	private long[] seenWhite;
+	private long[] seenBlack;
+	private int[] seenStamp;
+	private int stamp;
 	
 	/** Initialize blank board state. **/
 	public BoardState() {
-		board = new char[4][9]; // 4 Blocks of 9 tiles each
-		for (int i = 0; i < 4; i++) {
-			for (int j = 0; j < 9; j++) {
-				board[i][j] = '.';
-			}
-		}
+		white = 0L;
+		black = 0L;
+		hash = 0L;
 		winningColor = '.';
 		heuristic = 0;
+		evaluator = Evaluator.PAIRS;
+		moveStack = new int[36];
+		ply = 0;
+	}
+	
+	/**
+	 * Creates a copy of the given board state.
+	 * 
+	 * @param other board state to copy
+	 */
+	public BoardState(BoardState other) {
+		moveStack = new int[36];
+		copy(other);
+	}
+	
+	/**
+	 * Makes this board a copy of the given board state, without allocating.
+	 * 	Moves made on this board before can no longer be taken back.
+	 * 
+	 * @param other board state to copy
+	 */
+	public void copy(BoardState other) {
+		white = other.white;
+		black = other.black;
+		hash = other.hash;
+		whitePairs = other.whitePairs;
+		blackPairs = other.blackPairs;
+		winningColor = other.winningColor;
+		heuristic = other.heuristic;
+		evaluator = other.evaluator;
+		ply = 0;
 	}
 	
 	/**
@@ -40,7 +257,7 @@ public class BoardState implements Comparable<BoardState>{
 			return false;
 		}
 		
-		return board[block][pos] == '.';
+		return ((white | black) & (1L << (block * 9 + pos))) == 0;
 	}
 	
 	/**
@@ -51,7 +268,65 @@ public class BoardState implements Comparable<BoardState>{
 	 * @param color color of piece being played
 	 */
 	public void placeTile(int block, int pos, char color) {
-		board[block][pos] = color;
+		int square = block * 9 + pos;
+		removeTile(square);
+		if (color == 'W' || color == 'B') {
+			addTile(square, color);
+		}
+	}
+	
+	/**
+	 * Puts a tile on an empty position, updating the hash and 2-in-a-rows.
+	 * 
+	 * @param square position as block * 9 + pos
+	 * @param color 'W' or 'B'
+	 */
+	private void addTile(int square, char color) {
+		long bit = 1L << square;
+		if (color == 'W') {
+			whitePairs += Long.bitCount(PAIRS[square] & white);
+			white |= bit;
+			hash ^= ZOBRIST[0][square];
+		} else {
+			blackPairs += Long.bitCount(PAIRS[square] & black);
+			black |= bit;
+			hash ^= ZOBRIST[1][square];
+		}
+	}
+	
+	/**
+	 * Takes the tile off a position, if any, updating the hash and 2-in-a-rows.
+	 * 
+	 * @param square position as block * 9 + pos
+	 */
+	private void removeTile(int square) {
+		long bit = 1L << square;
+		if ((white & bit) != 0) {
+			white &= ~bit;
+			whitePairs -= Long.bitCount(PAIRS[square] & white);
+			hash ^= ZOBRIST[0][square];
+		} else if ((black & bit) != 0) {
+			black &= ~bit;
+			blackPairs -= Long.bitCount(PAIRS[square] & black);
+			hash ^= ZOBRIST[1][square];
+		}
+	}
+	
+	/**
+	 * Returns the tile on the given position.
+	 * 
+	 * @param block location of position
+	 * @param pos position inside block
+	 * @return 'W', 'B' or '.' if empty
+	 */
+	public char getTile(int block, int pos) {
+		long bit = 1L << (block * 9 + pos);
+		if ((white & bit) != 0) {
+			return 'W';
+		} else if ((black & bit) != 0) {
+			return 'B';
+		}
+		return '.';
 	}
 	
 	/**
@@ -61,252 +336,323 @@ public class BoardState implements Comparable<BoardState>{
 	 * @param rotation Direction of rotation
 	 */
 	public void rotateBlock(int block, char rotation) {
+		int shift = block * 9;
+		long mask = (long) BLOCK << shift;
+		short[] table = (rotation == 'r') ? ROTATE_R : ROTATE_L; // Clockwise : Counter-Clockwise
 		
-		char p0 = board[block][0];
-		char p1 = board[block][1];
-		char p2 = board[block][2];
-		char p3 = board[block][3];
-		char p5 = board[block][5];
-		char p6 = board[block][6]; 
-		char p7 = board[block][7];
-		char p8 = board[block][8];
+		int w = (int) (white >>> shift) & BLOCK;
+		int b = (int) (black >>> shift) & BLOCK;
+		int rw = table[w];
+		int rb = table[b];
 		
-		if (rotation == 'r') { // Rotate Clockwise
-			board[block][0] = p6;
-			board[block][1] = p3;
-			board[block][2] = p0;
-			board[block][3] = p7;
-			board[block][5] = p1;
-			board[block][6] = p8;
-			board[block][7] = p5;
-			board[block][8] = p2;
-		} else { // Rotate Counter-Clockwise
-			board[block][0] = p2;
-			board[block][1] = p5;
-			board[block][2] = p8;
-			board[block][3] = p1;
-			board[block][5] = p7;
-			board[block][6] = p0;
-			board[block][7] = p3;
-			board[block][8] = p6;
-		}
+		whitePairs -= countEdgePairs(white, block);
+		blackPairs -= countEdgePairs(black, block);
+		white = (white & ~mask) | ((long) rw << shift);
+		black = (black & ~mask) | ((long) rb << shift);
+		whitePairs += countEdgePairs(white, block);
+		blackPairs += countEdgePairs(black, block);
+		hash ^= ZOBRIST_BLOCK[0][block][w] ^ ZOBRIST_BLOCK[0][block][rw]
+				^ ZOBRIST_BLOCK[1][block][b] ^ ZOBRIST_BLOCK[1][block][rb];
 	}
 	
 	/**
-	 * Returns true if game is over.
+	 * Plays a packed move in place: places the tile and rotates the block, unless
+	 * 	the placement alone already ended the game. The board must not be over.
 	 * 
-	 * @return true if game over
+	 * @param move packed move, see Move
+	 * @param color color of piece being played
+	 * @return true if game over after the move
 	 */
-	public boolean isGameOver() {
+	public boolean makeMove(int move, char color) {
+		int square = move >>> 3;
+		int block = square / 9;
+		int pos = square % 9;
 		
-		boolean gameover = false;
+		addTile(square, color);
 		
-		if (this.isFull()) {
-			gameover = true;
+		if (isGameOver(block, pos, -1)) {
+			moveStack[ply++] = move | NO_ROTATION;
+			return true;
 		}
 		
-		boolean whiteWins = false;
-		boolean blackWins = false;
+		int rotBlock = (move >>> 1) & 3;
+		rotateBlock(rotBlock, (move & 1) != 0 ? 'r' : 'l');
+		moveStack[ply++] = move;
+		return isGameOver(block, pos, rotBlock);
+	}
+	
+	/** Takes back the last move played with makeMove. **/
+	public void unmakeMove() {
+		int move = moveStack[--ply];
 		
-		// Checks if there is a winner
-		// check row 1
-		if (board[0][1] != '.' && ((board[0][0] == board[0][1] 
-				&& board[0][0] == board[0][2] && board[0][0] == board[1][0] 
-				&& board[0][0] == board[1][1]) 
-				|| (board[0][1] == board[0][2] && board[0][1] == board[1][0]
-				&& board[0][1] == board[1][1] && board[0][1] == board[1][2]))) {
-			
-			gameover = true;
-			if (board[0][1] == 'W') {
-				whiteWins = true;
-			} else {
-				blackWins = true;
-			}
+		if ((move & NO_ROTATION) == 0) {
+			rotateBlock((move >>> 1) & 3, (move & 1) != 0 ? 'l' : 'r');
 		}
-		// check row 2
-		if (board[0][4] != '.' && ((board[0][3] == board[0][4] 
-				&& board[0][3] == board[0][5] && board[0][3] == board[1][3] 
-				&& board[0][3] == board[1][4]) 
-				|| (board[0][4] == board[0][5] && board[0][4] == board[1][3]
-				&& board[0][4] == board[1][4] && board[0][4] == board[1][5]))) {
+		removeTile((move & ~NO_ROTATION) >>> 3);
+		winningColor = '.';
+	}
+	
+	/**
+	 * Writes every legal packed move into the given array, once per distinct
+	 * 	resulting board. Moves that lead to the same board, like rotating an
+	 * 	empty or symmetric block either way, or any rotation after a placement
+	 * 	that already ended the game, are only written once.
+	 * 
+	 * @param moves array of at least Move.COUNT entries
+	 * @param color color of piece being played
+	 * @return number of moves written
+	 */
+	public int generateMoves(int[] moves, char color) {
+		clearSeen();
+		
+		int count = 0;
+		long empty = ~(white | black) & FULL;
+		
+		while (empty != 0) {
+			int square = Long.numberOfTrailingZeros(empty);
+			long bit = empty & -empty;
+			empty &= empty - 1;
 			
-			gameover = true;
-			if (board[0][4] == 'W') {
-				whiteWins = true;
-			} else {
-				blackWins = true;
+			long w = (color == 'W') ? white | bit : white;
+			long b = (color == 'W') ? black : black | bit;
+			
+			// Game ends on the placement, the rotation does not matter
+			if (hasLine(color == 'W' ? w : b, LINES_THROUGH_SQUARE[square]) || (w | b) == FULL) {
+				if (markSeen(w, b)) {
+					moves[count++] = square << 3;
+				}
+				continue;
 			}
-		}
-		// check row 3
-		if (board[0][7] != '.' && ((board[0][6] == board[0][7] 
-				&& board[0][6] == board[0][8] && board[0][6] == board[1][6] 
-				&& board[0][6] == board[1][7]) 
-				|| (board[0][7] == board[0][8] && board[0][7] == board[1][6]
-				&& board[0][7] == board[1][7] && board[0][7] == board[1][8]))) {
-
-			gameover = true;
-			if (board[0][7] == 'W') {
-				whiteWins = true;
-			} else {
-				blackWins = true;
+			
+			for (int rot = 0; rot < 8; rot++) {
+				int shift = (rot >>> 1) * 9;
+				long mask = (long) BLOCK << shift;
+				short[] table = ((rot & 1) != 0) ? ROTATE_R : ROTATE_L;
+				long rw = (w & ~mask) | ((long) table[(int) (w >>> shift) & BLOCK] << shift);
+				long rb = (b & ~mask) | ((long) table[(int) (b >>> shift) & BLOCK] << shift);
+				
+				if (markSeen(rw, rb)) {
+					moves[count++] = (square << 3) | rot;
+				}
 			}
 		}
-		// check row 4
-		if (board[2][1] != '.' && ((board[2][0] == board[2][1] 
-				&& board[2][0] == board[2][2] && board[2][0] == board[3][0] 
-				&& board[2][0] == board[3][1]) 
-				|| (board[2][1] == board[2][2] && board[2][1] == board[3][0]
-				&& board[2][1] == board[3][1] && board[2][1] == board[3][2]))) {
-
-			gameover = true;
-			if (board[2][1] == 'W') {
-				whiteWins = true;
-			} else {
-				blackWins = true;
+		
+		return count;
+	}
+	
+	/**
+	 * Writes the legal packed moves like generateMoves, but also drops moves that
+	 * 	lead to a board symmetric to one reached by an earlier move. Costs a
+	 * 	canonical form per move, so it is meant for the root of a search, where
+	 * 	the early game has many symmetric moves.
+	 * 
+	 * @param moves array of at least Move.COUNT entries
+	 * @param color color of piece being played
+	 * @return number of moves written
+	 */
+	public int generateUniqueMoves(int[] moves, char color) {
+		int count = generateMoves(moves, color);
+		
+		clearSeen();
+		int unique = 0;
+		for (int i = 0; i < count; i++) {
+			makeMove(moves[i], color);
+			int s = canonicalSymmetry();
+			boolean seen = !markSeen(Symmetry.transform(s, white), Symmetry.transform(s, black));
+			unmakeMove();
+			
+			if (!seen) {
+				moves[unique++] = moves[i];
 			}
 		}
-		// check row 5
-		if (board[2][4] != '.' && ((board[2][3] == board[2][4] 
-				&& board[2][3] == board[2][5] && board[2][3] == board[3][3] 
-				&& board[2][3] == board[3][4]) 
-				|| (board[2][4] == board[2][5] && board[2][4] == board[3][3]
-				&& board[2][4] == board[3][4] && board[2][4] == board[3][5]))) {
-
-			gameover = true;
-			if (board[2][4] == 'W') {
-				whiteWins = true;
-			} else {
-				blackWins = true;
-			}
+		
+		return unique;
+	}
+	
+	/** Forgets all boards remembered by markSeen. **/
+	private void clearSeen() {
+		if (seenStamp == null) {
+			seenWhite = new long[SEEN_SIZE];
+			seenBlack = new long[SEEN_SIZE];
+			seenStamp = new int[SEEN_SIZE];
 		}
-		// check row 6
-		if (board[2][7] != '.' && ((board[2][6] == board[2][7] 
-				&& board[2][6] == board[2][8] && board[2][6] == board[3][6] 
-				&& board[2][6] == board[3][7]) 
-				|| (board[2][7] == board[2][8] && board[2][7] == board[3][6]
-				&& board[2][7] == board[3][7] && board[2][7] == board[3][8]))) {
-
-			gameover = true;
-			if (board[2][7] == 'W') {
-				whiteWins = true;
-			} else {
-				blackWins = true;
-			}
+		if (++stamp == 0) {	// Stamp wrapped, forget everything
+			Arrays.fill(seenStamp, 0);
+			stamp = 1;
 		}
-		// check col 1
-		if (board[0][3] != '.' && ((board[0][0] == board[0][3] 
-				&& board[0][0] == board[0][6] && board[0][0] == board[2][0] 
-				&& board[0][0] == board[2][3]) 
-				|| (board[0][3] == board[0][6] && board[0][3] == board[2][0]
-				&& board[0][3] == board[2][3] && board[0][3] == board[2][6]))) {
-
-			gameover = true;
-			if (board[0][3] == 'W') {
-				whiteWins = true;
-			} else {
-				blackWins = true;
+	}
+	
+	/**
+	 * Remembers a board for the current generateMoves call.
+	 * 
+	 * @return true if the board was not seen before
+	 */
+	private boolean markSeen(long w, long b) {
+		int i = (int) (((w * 0x9E3779B97F4A7C15L) ^ b) * 0xC2B2AE3D27D4EB4FL >>> 55);
+		
+		while (seenStamp[i] == stamp) {
+			if (seenWhite[i] == w && seenBlack[i] == b) {
+				return false;
 			}
+			i = (i + 1) & (SEEN_SIZE - 1);
 		}
-		// check col 2
-		if (board[0][4] != '.' && ((board[0][1] == board[0][4] 
-				&& board[0][1] == board[0][7] && board[0][1] == board[2][1] 
-				&& board[0][1] == board[2][4]) 
-				|| (board[0][4] == board[0][7] && board[0][4] == board[2][1]
-				&& board[0][4] == board[2][4] && board[0][4] == board[2][7]))) {
-
-			gameover = true;
-			if (board[0][4] == 'W') {
-				whiteWins = true;
-			} else {
-				blackWins = true;
+		seenStamp[i] = stamp;
+		seenWhite[i] = w;
+		seenBlack[i] = b;
+		return true;
+	}
+	
+	/**
+	 * Returns true if the given tiles complete any of the given lines.
+	 * 
+	 * @param tiles mask of one color
+	 * @param lines bit set of indexes into LINES
+	 */
+	private static boolean hasLine(long tiles, int lines) {
+		while (lines != 0) {
+			long line = LINES[Integer.numberOfTrailingZeros(lines)];
+			if ((tiles & line) == line) {
+				return true;
 			}
+			lines &= lines - 1;
 		}
-		// check col 3
-		if (board[0][5] != '.' && ((board[0][2] == board[0][5] 
-				&& board[0][2] == board[0][8] && board[0][2] == board[2][2] 
-				&& board[0][2] == board[2][5]) 
-				|| (board[0][5] == board[0][8] && board[0][5] == board[2][2]
-				&& board[0][5] == board[2][5] && board[0][5] == board[2][8]))) {
-
-			gameover = true;
-			if (board[0][5] == 'W') {
-				whiteWins = true;
-			} else {
-				blackWins = true;
+		return false;
+	}
+	
+	/**
+	 * Returns the Zobrist hash of the board, kept up to date by every change.
+	 * 
+	 * @return hash of the tiles on the board
+	 */
+	public long getHash() {
+		return hash;
+	}
+	
+	/**
+	 * Returns the symmetry that maps this board to its smallest symmetric form,
+	 * 	comparing the white then the black mask of each of the 8 symmetric boards.
+	 * 	All symmetric boards share the same smallest form.
+	 * 
+	 * @return symmetry, see Symmetry
+	 */
+	public int canonicalSymmetry() {
+		int best = 0;
+		long bestWhite = white;
+		long bestBlack = black;
+		
+		for (int s = 1; s < Symmetry.COUNT; s++) {
+			long w = Symmetry.transform(s, white);
+			if (w > bestWhite) {
+				continue;
 			}
-		}
-		// check col 4
-		if (board[1][3] != '.' && ((board[1][0] == board[1][3] 
-				&& board[1][0] == board[1][6] && board[1][0] == board[3][0] 
-				&& board[1][0] == board[3][3]) 
-				|| (board[1][3] == board[1][6] && board[1][3] == board[3][0]
-				&& board[1][3] == board[3][3] && board[1][3] == board[3][6]))) {
-
-			gameover = true;
-			if (board[1][3] == 'W') {
-				whiteWins = true;
-			} else {
-				blackWins = true;
+			long b = Symmetry.transform(s, black);
+			if (w < bestWhite || b < bestBlack) {
+				best = s;
+				bestWhite = w;
+				bestBlack = b;
 			}
 		}
-		// check col 5
-		if (board[1][4] != '.' && ((board[1][1] == board[1][4] 
-				&& board[1][1] == board[1][7] && board[1][1] == board[3][1] 
-				&& board[1][1] == board[3][4]) 
-				|| (board[1][4] == board[1][7] && board[1][4] == board[3][1]
-				&& board[1][4] == board[3][4] && board[1][4] == board[3][7]))) {
-
-			gameover = true;
-			if (board[1][4] == 'W') {
-				whiteWins = true;
-			} else {
-				blackWins = true;
-			}
+		
+		return best;
+	}
+	
+	/**
+	 * Returns the Zobrist hash of this board after applying a symmetry.
+	 * 	With canonicalSymmetry() this gives the same hash for all symmetric boards.
+	 * 
+	 * @param symmetry symmetry, see Symmetry
+	 * @return hash of the transformed board
+	 */
+	public long getHash(int symmetry) {
+		if (symmetry == 0) {
+			return hash;
 		}
-		// check col 6
-		if (board[1][5] != '.' && ((board[1][2] == board[1][5] 
-				&& board[1][2] == board[1][8] && board[1][2] == board[3][2] 
-				&& board[1][2] == board[3][5]) 
-				|| (board[1][5] == board[1][8] && board[1][5] == board[3][2]
-				&& board[1][5] == board[3][5] && board[1][5] == board[3][8]))) {
-			
-			gameover = true;
-			if (board[1][5] == 'W') {
-				whiteWins = true;
-			} else {
-				blackWins = true;
-			}
+		
+		long w = Symmetry.transform(symmetry, white);
+		long b = Symmetry.transform(symmetry, black);
+		long h = 0L;
+		for (int block = 0; block < 4; block++) {
+			h ^= ZOBRIST_BLOCK[0][block][(int) (w >>> (block * 9)) & BLOCK]
+					^ ZOBRIST_BLOCK[1][block][(int) (b >>> (block * 9)) & BLOCK];
 		}
-		// check down diag
-		if (board[0][4] != '.' && ((board[0][0] == board[0][4] 
-				&& board[0][0] == board[0][8] && board[0][0] == board[3][0] 
-				&& board[0][0] == board[3][4]) 
-				|| (board[0][4] == board[0][8] && board[0][4] == board[3][0]
-				&& board[0][4] == board[3][4] && board[0][4] == board[3][8]))) {
-			
-			gameover = true;
-			if (board[0][4] == 'W') {
-				whiteWins = true;
-			} else {
-				blackWins = true;
-			}
+		return h;
+	}
+	
+	/**
+	 * Returns the Zobrist hash shared by this board and all its symmetric boards.
+	 * 
+	 * @return hash of the smallest symmetric form
+	 */
+	public long getCanonicalHash() {
+		return getHash(canonicalSymmetry());
+	}
+	
+	/**
+	 * Returns the mask of white tiles.
+	 * 
+	 * @return white bitboard
+	 */
+	long getWhite() {
+		return white;
+	}
+	
+	/**
+	 * Returns the mask of black tiles.
+	 * 
+	 * @return black bitboard
+	 */
+	long getBlack() {
+		return black;
+	}
+	
+	/**
+	 * Returns true if game is over.
+	 * 
+	 * @return true if game over
+	 */
+	public boolean isGameOver() {
+		return checkLines(ALL_LINES);
+	}
+	
+	/**
+	 * Returns true if game is over after the given move, only checking the lines
+	 * 	through the placed tile and the rotated block. The board must not have
+	 * 	been over before the move.
+	 * 
+	 * @param block block of the placed tile
+	 * @param pos position of the placed tile, before rotating
+	 * @param rotBlock rotated block, or -1 if no block was rotated yet
+	 * @return true if game over
+	 */
+	public boolean isGameOver(int block, int pos, int rotBlock) {
+		int lines = LINES_THROUGH_SQUARE[block * 9 + pos];
+		if (rotBlock >= 0) {
+			lines |= LINES_THROUGH_BLOCK[rotBlock];
 		}
-		// check up diag
-		if (board[2][4] != '.' && ((board[2][6] == board[2][4] 
-				&& board[2][6] == board[2][2] && board[2][6] == board[1][6] 
-				&& board[2][6] == board[1][4]) 
-				|| (board[2][4] == board[2][2] && board[2][4] == board[1][6]
-				&& board[2][4] == board[1][4] && board[2][4] == board[1][2]))) {
+		return checkLines(lines);
+	}
+	
+	/**
+	 * Checks the given set of winning lines and updates the winning color.
+	 * 
+	 * @param lines bit set of indexes into LINES
+	 * @return true if game over
+	 */
+	private boolean checkLines(int lines) {
+		boolean whiteWins = false;
+		boolean blackWins = false;
+		
+		while (lines != 0) {
+			long line = LINES[Integer.numberOfTrailingZeros(lines)];
+			lines &= lines - 1;
 			
-			gameover = true;
-			if (board[2][4] == 'W') {
+			if ((white & line) == line) {
 				whiteWins = true;
-			} else {
+			} else if ((black & line) == line) {
 				blackWins = true;
 			}
 		}
 		
-		
 		if (whiteWins == blackWins) {
 			winningColor = '.'; 	// Tie
 		} else if (whiteWins) {
@@ -315,7 +661,7 @@ public class BoardState implements Comparable<BoardState>{
 			winningColor = 'B';
 		}
 		
-		return gameover;
+		return whiteWins || blackWins || isFull();
 	}
 	
 	/**
@@ -324,15 +670,16 @@ public class BoardState implements Comparable<BoardState>{
 	 * @return board is full
 	 */
 	public boolean isFull() {
-		for (int i = 0; i < 4; i++) {
-			for (int j = 0; j < 9; j++) {
-				if (board[i][j] == '.') {
-					return false;
-				}
-			}
-		}
-		
-		return true;
+		return (white | black) == FULL;
+	}
+	
+	/**
+	 * Returns the number of empty positions.
+	 * 
+	 * @return empty positions
+	 */
+	public int getEmptyCount() {
+		return 36 - Long.bitCount(white | black);
 	}
 	
 	/**
@@ -352,195 +699,68 @@ public class BoardState implements Comparable<BoardState>{
 	 * @return The heuristic of the board state 
 	 */
 	public int calculateHeuristic(char pentaColor) {
-		heuristic = 0;
-		heuristic += count2inRow(pentaColor); 
+		heuristic = evaluator.evaluate(this, pentaColor);
 		
 		return heuristic;
 	}
 	
 	/**
-	 * Counts the number of 2-in-a-rows of pentatron's color.
+	 * Selects the heuristic calculateHeuristic uses. Copies of this board
+	 * 	use the same heuristic.
+	 * 
+	 * @param evaluator heuristic to use, Evaluator.PAIRS by default
+	 */
+	public void setEvaluator(Evaluator evaluator) {
+		this.evaluator = evaluator;
+	}
+	
+	/**
+	 * Counts the number of 2-in-a-rows of pentatron's color. The counts of both
+	 * 	colors are kept up to date as tiles are placed, removed and rotated.
 	 * 
 	 * @param pentaColor Pentatron's color
 	 * @return number of 2-in-a-rows
 	 */
-	private int count2inRow(char pentaColor) {
+	int count2inRow(char pentaColor) {
+		return (pentaColor == 'W') ? whitePairs : blackPairs;
+	}
+	
+	/**
+	 * Counts the 2-in-a-rows of the given tiles that cross the edge of a block.
+	 * 	2-in-a-rows inside a block stay the same when the block is rotated.
+	 * 
+	 * @param tiles mask of one color
+	 * @param block block to count for
+	 * @return number of 2-in-a-rows with one tile in the block
+	 */
+	private static int countEdgePairs(long tiles, int block) {
+		long outside = tiles & ~((long) BLOCK << (block * 9));
+		long inside = tiles & ((long) BLOCK << (block * 9));
 		int sum = 0;
 		
-		// Check horizontal 2-in-a-rows
-		for (int i = 0; i < 4; i++) {
-			for (int row1 = 0; row1 < 2; row1++) {
-				if (board[i][row1] == board[i][row1 + 1] &&
-						board[i][row1] == pentaColor) {
-					sum++;
-				}
-			}
-			for (int row2 = 3; row2 < 5; row2++) {
-				if (board[i][row2] == board[i][row2 + 1] &&
-						board[i][row2] == pentaColor) {
-					sum++;
-				}
-			}
-			for (int row3 = 6; row3 < 8; row3++) {
-				if (board[i][row3] == board[i][row3 + 1] &&
-						board[i][row3] == pentaColor) {
-					sum++;
-				}
-			}
-		}
-		if (board[0][2] == board[1][0] &&
-				board[0][2] == pentaColor) {
-			sum++;
-		}
-		if (board[0][5] == board[1][3] &&
-				board[0][5] == pentaColor) {
-			sum++;
-		}
-		if (board[0][8] == board[1][6] &&
-				board[0][8] == pentaColor) {
-			sum++;
-		}
-		if (board[2][2] == board[3][0] &&
-				board[2][2] == pentaColor) {
-			sum++;
-		}
-		if (board[2][5] == board[3][3] &&
-				board[2][5] == pentaColor) {
-			sum++;
-		}
-		if (board[2][8] == board[3][6] &&
-				board[2][8] == pentaColor) {
-			sum++;
-		}
-		
-		// Check vertical 2-in-a-rows
-		for (int i = 0; i < 4; i++) {
-			for (int col1 = 0; col1 < 6; col1++) {
-				if (board[i][col1] == board[i][col1 + 3] &&
-						board[i][col1] == pentaColor) {
-					sum++;
-				}
-			}
-		}
-		if (board[0][6] == board[2][0] &&
-				board[0][6] == pentaColor) {
-			sum++;
-		}
-		if (board[0][7] == board[2][1] &&
-				board[0][7] == pentaColor) {
-			sum++;
-		}
-		if (board[0][8] == board[2][2] &&
-				board[0][8] == pentaColor) {
-			sum++;
-		}
-		if (board[1][6] == board[3][0] &&
-				board[1][6] == pentaColor) {
-			sum++;
-		}
-		if (board[1][7] == board[3][1] &&
-				board[1][7] == pentaColor) {
-			sum++;
-		}
-		if (board[1][8] == board[3][2] &&
-				board[1][8] == pentaColor) {
-			sum++;
-		}
-		
-		// Count diagonals
-		for (int i = 0; i < 4; i++) {
-			if (board[i][0] == board[i][4] &&
-					board[i][0] == pentaColor) {
-				sum++;
-			}
-			if (board[i][1] == board[i][3] &&
-					board[i][1] == pentaColor) {
-				sum++;
-			}
-			if (board[i][1] == board[i][5] &&
-					board[i][1] == pentaColor) {
-				sum++;
-			}
-			if (board[i][2] == board[i][4] &&
-					board[i][2] == pentaColor) {
-				sum++;
-			}
-			if (board[i][6] == board[i][4] &&
-					board[i][6] == pentaColor) {
-				sum++;
-			}
-			if (board[i][7] == board[i][3] &&
-					board[i][7] == pentaColor) {
-				sum++;
-			}
-			if (board[i][7] == board[i][5] &&
-					board[i][7] == pentaColor) {
-				sum++;
-			}
-			if (board[i][8] == board[i][4] &&
-					board[i][8] == pentaColor) {
-				sum++;
-			}
-		}
-
-		if (board[2][2] == board[1][6] &&
-				board[2][2] == pentaColor) {
-			sum++;
+		while (inside != 0) {
+			sum += Long.bitCount(PAIRS[Long.numberOfTrailingZeros(inside)] & outside);
+			inside &= inside - 1;
 		}
-		if (board[0][8] == board[3][0] &&
-				board[0][8] == pentaColor) {
-			sum++;
-		}
-
-			
 		return sum;
 	}
 	
+	/**
+	 * Returns a copy of the board for every distinct move.
+	 * 
+	 * @param color color of piece being played
+	 * @return child boards
+	 */
 	public Queue<BoardState> getChildren(char color) {
 		
 		Queue<BoardState> childQueue = new LinkedList<BoardState>();
+		int[] moves = new int[Move.COUNT];
+		int count = generateMoves(moves, color);
 		
-		for (int block = 0; block < 4; block++) {
-			for (int pos = 0; pos < 9; pos++) {
-				for (int rB = 0; rB < 4; rB++) {
-					for (int rot = 0; rot < 2; rot++) {
-						// Copy parent to child
-						BoardState newChild1 = new BoardState();
-						for (int i = 0; i < 4; i++) {
-							for (int j = 0; j < 9; j++) {
-								if (board[i][j] == 'W') {
-									newChild1.placeTile(i, j, 'W');
-								} else if (board[i][j] == 'B'){
-									newChild1.placeTile(i, j, 'B');
-								}
-							}
-						}
-						BoardState newChild2 = new BoardState();
-						for (int i = 0; i < 4; i++) {
-							for (int j = 0; j < 9; j++) {
-								if (board[i][j] == 'W') {
-									newChild2.placeTile(i, j, 'W');
-								} else if (board[i][j] == 'B'){
-									newChild2.placeTile(i, j, 'B');
-								}
-							}
-						}
-						if(board[block][pos] == '.') {	
-							if (rot == 0) {
-								newChild1.placeTile(block, pos, color);
-								childQueue.add(newChild1);
-								newChild2.rotateBlock(block, 'l');
-								childQueue.add(newChild2);
-							} else {
-								newChild1.placeTile(block, pos, color);
-								childQueue.add(newChild1);
-								newChild2.rotateBlock(block, 'r');
-								childQueue.add(newChild2);
-							}
-						}
-					}
-				}
-			}
+		for (int i = 0; i < count; i++) {
+			BoardState child = new BoardState(this);
+			child.makeMove(moves[i], color);
+			childQueue.add(child);
 		}
 		
 		return childQueue;
@@ -568,19 +788,19 @@ public class BoardState implements Comparable<BoardState>{
 	/** Prints this boards state. */
 	public void printBoard() {
 		System.out.println("+-------+-------+");
-		System.out.println("| " + board[0][0] + " " + board[0][1] + " " + board[0][2] +
-				           " | " + board[1][0] + " " + board[1][1] + " " + board[1][2] + " |"); 
-		System.out.println("| " + board[0][3] + " " + board[0][4] + " " + board[0][5] +
-						   " | " + board[1][3] + " " + board[1][4] + " " + board[1][5] + " |");
-		System.out.println("| " + board[0][6] + " " + board[0][7] + " " + board[0][8] +
-				           " | " + board[1][6] + " " + board[1][7] + " " + board[1][8] + " |");
+		System.out.println("| " + getTile(0, 0) + " " + getTile(0, 1) + " " + getTile(0, 2) +
+				           " | " + getTile(1, 0) + " " + getTile(1, 1) + " " + getTile(1, 2) + " |"); 
+		System.out.println("| " + getTile(0, 3) + " " + getTile(0, 4) + " " + getTile(0, 5) +
+						   " | " + getTile(1, 3) + " " + getTile(1, 4) + " " + getTile(1, 5) + " |");
+		System.out.println("| " + getTile(0, 6) + " " + getTile(0, 7) + " " + getTile(0, 8) +
+				           " | " + getTile(1, 6) + " " + getTile(1, 7) + " " + getTile(1, 8) + " |");
 		System.out.println("+-------+-------+");
-		System.out.println("| " + board[2][0] + " " + board[2][1] + " " + board[2][2] +
-				           " | " + board[3][0] + " " + board[3][1] + " " + board[3][2] + " |");
-		System.out.println("| " + board[2][3] + " " + board[2][4] + " " + board[2][5] +
-				           " | " + board[3][3] + " " + board[3][4] + " " + board[3][5] + " |");
-		System.out.println("| " + board[2][6] + " " + board[2][7] + " " + board[2][8] +
-				           " | " + board[3][6] + " " + board[3][7] + " " + board[3][8] + " |");
+		System.out.println("| " + getTile(2, 0) + " " + getTile(2, 1) + " " + getTile(2, 2) +
+				           " | " + getTile(3, 0) + " " + getTile(3, 1) + " " + getTile(3, 2) + " |");
+		System.out.println("| " + getTile(2, 3) + " " + getTile(2, 4) + " " + getTile(2, 5) +
+				           " | " + getTile(3, 3) + " " + getTile(3, 4) + " " + getTile(3, 5) + " |");
+		System.out.println("| " + getTile(2, 6) + " " + getTile(2, 7) + " " + getTile(2, 8) +
+				           " | " + getTile(3, 6) + " " + getTile(3, 7) + " " + getTile(3, 8) + " |");
 		System.out.println("+-------+-------+");
 	}
 }
@@ -0,0 +1,382 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exact results of late boards, solved ahead of time and stored on disk, so
+ * 	the search can use them instead of the heuristic.
+ *
+ * 	Every board with up to N empty squares is far too many to solve, so the
+ * 	table is built from seed boards instead: games are played by a shallow
+ * 	search from random openings until N squares are left, and the board
+ * 	reached and every board one move after it are solved exactly with the
+ * 	proof-number solver. Those are the boards real games run into.
+ *
+ * 	A board is stored as one long: the top 62 bits of its canonical key
+ * 	(Symmetry.key of the tiles of the player to move and of the other
+ * 	player), then 2 bits of result for the player to move, LOSS, DRAW or WIN
+ * 	as in ProofNumberSearch. The file holds a header and then the entries
+ * 	sorted by key:
+ *
+ * 	int MAGIC, int N, long count, then count entries
+ *
+ * 	Seeds are solved on all threads, each collecting entries into a fixed
+ * 	buffer that is sorted and written out as a run file whenever it is full,
+ * 	so building needs little memory however large the table gets. The runs
+ * 	are then merged into the table. The table is memory mapped and searched
+ * 	in place, so probing does not allocate.
+ *
+ * 	Usage: EndgameTable [file] [maxEmpty] [seeds] [threads]
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class EndgameTable {
+
+	/** File the game reads its table from, in the working directory. **/
+	public static final String DEFAULT_FILE = "pentatron.endgame";
+
+	/** First int of a table file. **/
+	private static final int MAGIC = 0x50454731;	// "PEG1"
+	private static final int HEADER = 16;
+
+	/** Entries a building thread collects before writing a run. **/
+	private static final int RUN_SIZE = 1 << 20;
+
+	/** Milliseconds to solve each board for while building; boards not solved in time are left out. **/
+	private static final long SOLVE_MILLIS = 2000;
+
+	/** Random moves opening each seed game, and depth of the search playing the rest. **/
+	private static final int RANDOM_MOVES = 6;
+	private static final int SEED_DEPTH = 2;
+
+	private final ByteBuffer entries;
+	private final long count;
+	private final int maxEmpty;
+
+	/** Creates a table over the given entries. **/
+	private EndgameTable(ByteBuffer entries, long count, int maxEmpty) {
+		this.entries = entries;
+		this.count = count;
+		this.maxEmpty = maxEmpty;
+	}
+
+	/**
+	 * Maps a table file into memory. A missing file gives an empty table.
+	 *
+	 * @param file table file
+	 * @return the table
+	 */
+	public static EndgameTable open(String file) {
+		Path path = Paths.get(file);
+		if (!Files.exists(path)) {
+			return new EndgameTable(null, 0, -1);
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.capacity() < HEADER || buffer.getInt(0) != MAGIC
+					|| buffer.capacity() != HEADER + buffer.getLong(8) * 8) {
+				throw new IllegalStateException("Not an endgame table: " + file);
+			}
+			return new EndgameTable(buffer, buffer.getLong(8), buffer.getInt(4));
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot read endgame table " + file, e);
+		}
+	}
+
+	/**
+	 * Maps a table file into memory like open, but gives an empty table and a
+	 * 	warning when the file cannot be read or is not a table, so a corrupt
+	 * 	table leaves the late game to the solver.
+	 *
+	 * @param file table file
+	 * @return the table, empty if it could not be opened
+	 */
+	public static EndgameTable openOrEmpty(String file) {
+		try {
+			return open(file);
+		} catch (RuntimeException e) {
+			System.err.println("Playing without an endgame table: " + e.getMessage());
+			return new EndgameTable(null, 0, -1);
+		}
+	}
+
+	/**
+	 * Returns the table in DEFAULT_FILE, opened with openOrEmpty the first
+	 * 	time it is asked for and shared from then on.
+	 *
+	 * @return the default table
+	 */
+	public static EndgameTable getDefault() {
+		return Default.TABLE;
+	}
+
+	/** Holds the default table, so loading the class does not open the file. **/
+	private static class Default {
+		static final EndgameTable TABLE = openOrEmpty(DEFAULT_FILE);
+	}
+
+	/**
+	 * Looks up the result of a board.
+	 *
+	 * @param bs board, not over
+	 * @param color color to move
+	 * @return WIN, DRAW or LOSS for color, or UNKNOWN if the board is not in the table
+	 */
+	public int probe(BoardState bs, char color) {
+		if (bs.getEmptyCount() > maxEmpty) {
+			return ProofNumberSearch.UNKNOWN;
+		}
+		long mover = (color == 'W') ? bs.getWhite() : bs.getBlack();
+		long other = (color == 'W') ? bs.getBlack() : bs.getWhite();
+		long key = Symmetry.key(Symmetry.canonical(mover, other), mover, other) & ~3L;
+
+		long low = 0;
+		long high = count - 1;
+		while (low <= high) {
+			long mid = (low + high) >>> 1;
+			long entry = entries.getLong((int) (HEADER + mid * 8));
+			long found = entry & ~3L;
+			if (found < key) {
+				low = mid + 1;
+			} else if (found > key) {
+				high = mid - 1;
+			} else {
+				return (int) (entry & 3);
+			}
+		}
+		return ProofNumberSearch.UNKNOWN;
+	}
+
+	/** Returns the most empty squares of a board in the table, -1 if the table is empty. **/
+	public int getMaxEmpty() {
+		return maxEmpty;
+	}
+
+	/** Returns the number of boards in the table. **/
+	public long size() {
+		return count;
+	}
+
+	/**
+	 * Builds a table from seed games.
+	 *
+	 * @param file file to write
+	 * @param maxEmpty empty squares of the seed boards
+	 * @param seeds number of seed games to play
+	 * @param threads threads to solve with
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void build(String file, int maxEmpty, int seeds, int threads) throws IOException {
+		Path path = Paths.get(file).toAbsolutePath();
+		Path dir = Files.createTempDirectory(path.getParent(), "endgame");
+		List<Path> runs = Collections.synchronizedList(new ArrayList<>());
+		AtomicInteger next = new AtomicInteger();
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<?>> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			workers.add(pool.submit(() -> {
+				solveSeeds(maxEmpty, seeds, next, dir, runs);
+				return null;
+			}));
+		}
+		try {
+			for (Future<?> worker : workers) {
+				worker.get();
+			}
+		} catch (Exception e) {
+			throw new IOException("Building the endgame table failed", e);
+		} finally {
+			pool.shutdownNow();
+		}
+
+		long count = merge(runs, path, maxEmpty);
+		for (Path run : runs) {
+			Files.delete(run);
+		}
+		Files.delete(dir);
+		System.out.println(count + " boards with up to " + maxEmpty + " empty squares");
+	}
+
+	/**
+	 * Work of one building thread: takes seeds until there are none left,
+	 * 	solves them and writes the results as sorted runs.
+	 */
+	private static void solveSeeds(int maxEmpty, int seeds, AtomicInteger next, Path dir, List<Path> runs)
+			throws IOException {
+		ProofNumberSearch solver = new ProofNumberSearch(18);
+		AlphaBeta player = new AlphaBeta('W', 'B', new TranspositionTable(16));
+		int[] moves = new int[Move.COUNT];
+		long[] run = new long[RUN_SIZE];
+		int size = 0;
+
+		for (int seed = next.getAndIncrement(); seed < seeds; seed = next.getAndIncrement()) {
+			BoardState bs = new BoardState();
+			bs.setEvaluator(Evaluator.LINES);
+			char color = seedGame(bs, player, new Random(seed), maxEmpty, moves);
+			if (color == 0) {
+				continue;	// Game ended before reaching the table
+			}
+
+			// The seed board, then every board one move later
+			char other = (color == 'W') ? 'B' : 'W';
+			if (size + 1 + Move.COUNT > RUN_SIZE) {
+				runs.add(writeRun(run, size, dir));
+				size = 0;
+			}
+			size = solve(bs, color, solver, run, size);
+			int count = bs.generateMoves(moves, color);
+			for (int i = 0; i < count; i++) {
+				if (!bs.makeMove(moves[i], color)) {
+					size = solve(bs, other, solver, run, size);
+				}
+				bs.unmakeMove();
+			}
+		}
+		if (size > 0) {
+			runs.add(writeRun(run, size, dir));
+		}
+	}
+
+	/**
+	 * Plays a seed game: random moves, then a shallow search for both players,
+	 * 	until at most maxEmpty squares are empty.
+	 *
+	 * @return color to move on the seed board, or 0 if the game ended first
+	 */
+	private static char seedGame(BoardState bs, AlphaBeta player, Random random, int maxEmpty, int[] moves) {
+		char color = 'W';
+		for (int ply = 0; bs.getEmptyCount() > maxEmpty; ply++) {
+			int move;
+			if (ply < RANDOM_MOVES) {
+				move = moves[random.nextInt(bs.generateMoves(moves, color))];
+			} else {
+				player.search(bs, SEED_DEPTH, color == 'W');
+				move = player.getRootMove();
+			}
+			if (bs.makeMove(move, color)) {
+				return 0;
+			}
+			color = (color == 'W') ? 'B' : 'W';
+		}
+		return color;
+	}
+
+	/** Solves a board and adds its entry to the run, if it was solved in time. **/
+	private static int solve(BoardState bs, char color, ProofNumberSearch solver, long[] run, int size) {
+		solver.setDeadline(System.nanoTime() + SOLVE_MILLIS * 1000000L);
+		int result = solver.solve(bs, color);
+		if (result != ProofNumberSearch.UNKNOWN) {
+			long mover = (color == 'W') ? bs.getWhite() : bs.getBlack();
+			long other = (color == 'W') ? bs.getBlack() : bs.getWhite();
+			run[size++] = (Symmetry.key(Symmetry.canonical(mover, other), mover, other) & ~3L) | result;
+		}
+		return size;
+	}
+
+	/** Sorts entries and writes them to a new run file. **/
+	private static Path writeRun(long[] run, int size, Path dir) throws IOException {
+		Arrays.sort(run, 0, size);
+		Path file = Files.createTempFile(dir, "run", ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+			for (int i = 0; i < size; i++) {
+				out.writeLong(run[i]);
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * Merges sorted runs into a table file, keeping one entry per key.
+	 *
+	 * @return number of entries written
+	 */
+	private static long merge(List<Path> runs, Path path, int maxEmpty) throws IOException {
+		List<DataInputStream> inputs = new ArrayList<>();
+		// Heads of the runs, as {entry, run}
+		PriorityQueue<long[]> heads = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+		long count = 0;
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+			out.writeInt(MAGIC);
+			out.writeInt(maxEmpty);
+			out.writeLong(0);	// Count, written when known
+
+			for (int i = 0; i < runs.size(); i++) {
+				DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(runs.get(i))));
+				inputs.add(in);
+				readNext(in, i, heads);
+			}
+
+			long last = 0;
+			while (!heads.isEmpty()) {
+				long[] head = heads.poll();
+				if (count == 0 || (head[0] & ~3L) != (last & ~3L)) {
+					out.writeLong(head[0]);
+					last = head[0];
+					count++;
+				}
+				readNext(inputs.get((int) head[1]), (int) head[1], heads);
+			}
+			out.flush();
+
+			ByteBuffer header = ByteBuffer.allocate(8);
+			header.putLong(0, count);
+			channel.write(header, 8);
+		} finally {
+			for (DataInputStream in : inputs) {
+				in.close();
+			}
+		}
+		return count;
+	}
+
+	/** Adds the next entry of a run to the heads, if it has one left. **/
+	private static void readNext(DataInputStream in, int run, PriorityQueue<long[]> heads) throws IOException {
+		try {
+			heads.add(new long[] {in.readLong(), run});
+		} catch (EOFException e) {
+			// Run used up
+		}
+	}
+
+	/**
+	 * Builds a table.
+	 *
+	 * @param args optional file, most empty squares, seed games and threads
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		String file = (args.length > 0) ? args[0] : DEFAULT_FILE;
+		int maxEmpty = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+		int seeds = (args.length > 2) ? Integer.parseInt(args[2]) : 1000;
+		int threads = (args.length > 3) ? Integer.parseInt(args[3])
+				: Runtime.getRuntime().availableProcessors();
+		build(file, maxEmpty, seeds, threads);
+	}
+}
@@ -0,0 +1,65 @@
+package model;
+
+/**
+ * Picks Pentatron's moves. Implemented by the alpha-beta Search and by
+ * 	MonteCarloSearch, so a game can be played with either.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public interface Engine {
+
+	/**
+	 * Searches a board and returns the best move found.
+	 *
+	 * @param board board to search, must not be over; not changed
+	 * @param maxPlayer true if the maximizing color is to move
+	 * @param timeLimit milliseconds to search for
+	 * @return best packed move
+	 */
+	int search(BoardState board, boolean maxPlayer, long timeLimit);
+
+	/**
+	 * Makes a search running on another thread return as soon as it has a
+	 * 	move. Only stops a search that has started; a search started after the
+	 * 	call runs normally.
+	 */
+	void stop();
+
+	/**
+	 * Sets the deepest depth searches go to, in moves. Engines that do not
+	 * 	search to a depth ignore it.
+	 *
+	 * @param depth deepest depth, at least 1
+	 */
+	void setDepthLimit(int depth);
+
+	/** Returns the number of boards visited in the last search. **/
+	long getNodes();
+
+	/** Returns the boards visited per second in the last search. **/
+	long getNodesPerSecond();
+
+	/**
+	 * Sets a table of exact results of late boards for the engine to use.
+	 *
+	 * @param endgame endgame table
+	 */
+	void setEndgameTable(EndgameTable endgame);
+
+	/**
+	 * Starts searching the board in the background while the other player
+	 * 	thinks, so the next search finds part of its work done. Runs until
+	 * 	stopPondering() or the next search() is called.
+	 *
+	 * @param board board to search, must not be over; copied, so it may change
+	 * @param maxPlayer true if the maximizing color is to move
+	 */
+	void ponder(BoardState board, boolean maxPlayer);
+
+	/** Stops the background search, if one is running, and waits for it to end. **/
+	void stopPondering();
+
+	/** Stops the engine's threads for good. **/
+	void shutdown();
+}
@@ -0,0 +1,72 @@
+package model;
+
+import java.util.Random;
+
+/**
+ * Plays the alpha-beta Search against MonteCarloSearch at the same time per
+ * 	move and prints the score. Each pair of games starts from the same two
+ * 	random moves, with the engines swapping colors.
+ *
+ * 	Usage: EngineMatch [games] [millisPerMove] [threads]
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class EngineMatch {
+
+	/** Most boards the Monte Carlo tree may hold. **/
+	private static final int TREE_NODES = 1 << 20;
+
+	/**
+	 * Runs the match.
+	 *
+	 * @param args optional number of games, milliseconds per move and threads per engine
+	 */
+	public static void main(String[] args) {
+		int games = (args.length > 0) ? Integer.parseInt(args[0]) : 10;
+		long millis = (args.length > 1) ? Long.parseLong(args[1]) : 1000;
+		int threads = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
+
+		int alphaBetaWins = 0;
+		int monteCarloWins = 0;
+		int ties = 0;
+		int[] moves = new int[Move.COUNT];
+		for (int game = 0; game < games; game++) {
+			char alphaBetaColor = (game % 2 == 0) ? 'W' : 'B';
+			char monteCarloColor = (game % 2 == 0) ? 'B' : 'W';
+			Engine alphaBeta = new Search(alphaBetaColor, monteCarloColor, threads, 20);
+			Engine monteCarlo = new MonteCarloSearch(monteCarloColor, alphaBetaColor, threads, TREE_NODES);
+
+			BoardState board = new BoardState();
+			board.setEvaluator(Evaluator.LINES);
+			Random rand = new Random(game / 2);
+			char color = 'W';
+			board.makeMove(moves[rand.nextInt(board.generateMoves(moves, color))], color);
+			color = 'B';
+			board.makeMove(moves[rand.nextInt(board.generateMoves(moves, color))], color);
+			color = 'W';
+
+			while (true) {
+				Engine engine = (color == alphaBetaColor) ? alphaBeta : monteCarlo;
+				if (board.makeMove(engine.search(board, true, millis), color)) {
+					break;
+				}
+				color = (color == 'W') ? 'B' : 'W';
+			}
+			alphaBeta.shutdown();
+			monteCarlo.shutdown();
+
+			char winner = board.getWinner();
+			if (winner == alphaBetaColor) {
+				alphaBetaWins++;
+			} else if (winner == monteCarloColor) {
+				monteCarloWins++;
+			} else {
+				ties++;
+			}
+			System.out.printf("game %d: alpha-beta %c, monte carlo %c, winner %c%n",
+					game + 1, alphaBetaColor, monteCarloColor, winner);
+		}
+		System.out.printf("alpha-beta %d  monte carlo %d  ties %d%n", alphaBetaWins, monteCarloWins, ties);
+	}
+}
@@ -0,0 +1,284 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs a HeadlessEngine over a simple line protocol, one command per line on
+ * 	standard input and replies on standard output, so other programs can play
+ * 	against Pentatron without its console game. Moves are written the way the
+ * 	player enters them, e.g. "1/5 2r". Commands:
+ *
+ * 	newgame                        empty board, white to move
+ * 	position startpos [moves ...]  empty board, then the moves
+ * 	position board &lt;36 tiles&gt; &lt;W|B&gt; [moves ...]
+ * 	                               tiles row by row from the top, '.', 'W' or
+ * 	                               'B', then the color to move
+ * 	go [depth n] [movetime ms] [infinite]
+ * 	                               starts searching, at most n moves deep or
+ * 	                               for ms milliseconds; a depth without a
+ * 	                               movetime searches until the depth is done.
+ * 	                               Replies with "info" and "bestmove &lt;move&gt;"
+ * 	                               when done. Depths need the alpha-beta engine
+ * 	stop                           ends the search at once
+ * 	board                          replies "board &lt;36 tiles&gt; &lt;color to move&gt;"
+ * 	isready                        replies "readyok"
+ * 	quit                           stops and exits
+ *
+ * 	Errors are replied as "error &lt;message&gt;".
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class EngineProtocol {
+
+	private final HeadlessEngine engine;
+	private final PrintStream out;
+
+	// Done once the last search's replies are written
+	private CompletableFuture<Void> replied;
+
+	/**
+	 * Creates a protocol for an engine.
+	 *
+	 * @param engine engine to run
+	 * @param out where replies are written
+	 */
+	public EngineProtocol(HeadlessEngine engine, PrintStream out) {
+		this.engine = engine;
+		this.out = out;
+	}
+
+	/**
+	 * Reads and runs commands until "quit" or the end of the input. Does not
+	 * 	shut the engine down.
+	 *
+	 * @param in commands
+	 * @throws IOException if reading fails
+	 */
+	public void run(BufferedReader in) throws IOException {
+		String line;
+		while ((line = in.readLine()) != null) {
+			if (!execute(line)) {
+				break;
+			}
+		}
+		stop();
+	}
+
+	/**
+	 * Runs one command.
+	 *
+	 * @param line command line
+	 * @return false if the command was "quit"
+	 */
+	public boolean execute(String line) {
+		String[] words = line.trim().split("\\s+");
+		try {
+			switch (words[0]) {
+			case "":
+				break;
+			case "newgame":
+				stop();
+				engine.newGame();
+				break;
+			case "position":
+				stop();
+				position(words);
+				break;
+			case "go":
+				go(words);
+				break;
+			case "stop":
+				stop();
+				break;
+			case "board":
+				reply("board " + tiles(engine.getBoard()) + " " + engine.getToMove());
+				break;
+			case "isready":
+				reply("readyok");
+				break;
+			case "quit":
+				stop();
+				return false;
+			default:
+				reply("error unknown command " + words[0]);
+			}
+		} catch (RuntimeException e) {
+			reply("error " + e.getMessage());
+		}
+		return true;
+	}
+
+	/** Sets up the board of a position command and plays its moves. **/
+	private void position(String[] words) {
+		BoardState bs = new BoardState();
+		char color = 'W';
+		int i = 2;
+		if (words.length > 1 && words[1].equals("board") && words.length > 3) {
+			bs = parseTiles(words[2]);
+			color = Character.toUpperCase(words[3].charAt(0));
+			if (color != 'W' && color != 'B') {
+				throw new IllegalArgumentException("bad color " + words[3]);
+			}
+			i = 4;
+		} else if (words.length < 2 || !words[1].equals("startpos")) {
+			throw new IllegalArgumentException("expected startpos or board");
+		}
+
+		engine.setPosition(bs, color);
+		if (i < words.length) {
+			if (!words[i].equals("moves")) {
+				throw new IllegalArgumentException("expected moves");
+			}
+			for (i++; i + 1 < words.length; i += 2) {
+				engine.play(parseMove(words[i], words[i + 1]));
+			}
+			if (i < words.length) {
+				throw new IllegalArgumentException("incomplete move " + words[i]);
+			}
+		}
+	}
+
+	/** Starts a search and replies with its move when it ends. **/
+	private void go(String[] words) {
+		long timeLimit = PentagoGame.DEFAULT_TIME_LIMIT;
+		boolean movetimeGiven = false;
+		int depth = HeadlessEngine.NO_DEPTH_LIMIT;
+		boolean depthGiven = false;
+		for (int i = 1; i < words.length; i++) {
+			switch (words[i]) {
+			case "depth":
+				depth = Integer.parseInt(words[++i]);
+				depthGiven = true;
+				break;
+			case "movetime":
+				timeLimit = Long.parseLong(words[++i]);
+				movetimeGiven = true;
+				break;
+			case "infinite":
+				timeLimit = HeadlessEngine.NO_TIME_LIMIT;
+				movetimeGiven = true;
+				break;
+			default:
+				throw new IllegalArgumentException("unknown go option " + words[i]);
+			}
+		}
+		if (depthGiven) {
+			// Other engines ignore depths, and would search until stopped
+			if (!(engine.getEngine() instanceof Search)) {
+				throw new IllegalArgumentException("depth needs the alpha-beta engine");
+			}
+			if (!movetimeGiven) {
+				timeLimit = HeadlessEngine.NO_TIME_LIMIT;
+			}
+		}
+
+		boolean white = engine.getToMove() == 'W';
+		replied = engine.goAsync(timeLimit, depth).handle((move, failure) -> {
+			if (failure != null) {
+				reply("error " + failure.getMessage());
+			} else {
+				reply(info(white));
+				reply("bestmove " + Move.toString(move));
+			}
+			return null;
+		});
+	}
+
+	/** Stops the running search, if any, and waits until its move is replied. **/
+	private void stop() {
+		engine.stop();
+		if (replied != null) {
+			replied.join();
+		}
+	}
+
+	/** Returns the info line of the search that just ended, scores for the color that moved. **/
+	private String info(boolean white) {
+		if (engine.isBookMove()) {
+			return "info string book";
+		}
+		Engine searcher = engine.getEngine();
+		if (searcher instanceof Search) {
+			SearchStats stats = ((Search) searcher).getStats();
+			return "info depth " + stats.getDepth()
+					+ " score " + (white ? stats.getScore() : -stats.getScore())
+					+ " nodes " + stats.getNodes()
+					+ " nps " + stats.getNodesPerSecond()
+					+ " time " + stats.getNanos() / 1000000;
+		}
+		return "info nodes " + searcher.getNodes() + " nps " + searcher.getNodesPerSecond();
+	}
+
+	/** Writes a reply line; searches reply from their own thread. **/
+	private void reply(String line) {
+		synchronized (out) {
+			out.println(line);
+			out.flush();
+		}
+	}
+
+	/**
+	 * Parses a move given as two words, e.g. "1/5" and "2r".
+	 *
+	 * @return packed move
+	 * @throws IllegalArgumentException if the words are not a move
+	 */
+	static int parseMove(String tile, String rotation) {
+		if (tile.length() != 3 || tile.charAt(1) != '/' || rotation.length() != 2
+				|| tile.charAt(0) < '1' || tile.charAt(0) > '4' || tile.charAt(2) < '1' || tile.charAt(2) > '9'
+				|| rotation.charAt(0) < '1' || rotation.charAt(0) > '4'
+				|| "rlRL".indexOf(rotation.charAt(1)) < 0) {
+			throw new IllegalArgumentException("bad move " + tile + " " + rotation);
+		}
+		return Move.parse(tile + " " + rotation);
+	}
+
+	/**
+	 * Parses 36 tiles given row by row from the top.
+	 *
+	 * @throws IllegalArgumentException if the tiles are not a board
+	 */
+	static BoardState parseTiles(String tiles) {
+		if (tiles.length() != 36) {
+			throw new IllegalArgumentException("expected 36 tiles");
+		}
+		BoardState bs = new BoardState();
+		for (int i = 0; i < 36; i++) {
+			char tile = Character.toUpperCase(tiles.charAt(i));
+			int square = BoardState.square(i / 6, i % 6);
+			if (tile == 'W' || tile == 'B') {
+				bs.placeTile(square / 9, square % 9, tile);
+			} else if (tile != '.') {
+				throw new IllegalArgumentException("bad tile " + tile);
+			}
+		}
+		return bs;
+	}
+
+	/** Returns the 36 tiles of a board row by row from the top. **/
+	static String tiles(BoardState bs) {
+		StringBuilder sb = new StringBuilder(36);
+		for (int i = 0; i < 36; i++) {
+			int square = BoardState.square(i / 6, i % 6);
+			sb.append(bs.getTile(square / 9, square % 9));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Runs the protocol on standard input and output.
+	 *
+	 * @param args [threads]
+	 */
+	public static void main(String[] args) throws IOException {
+		int threads = (args.length > 0) ? Integer.parseInt(args[0]) : PentagoGame.DEFAULT_THREADS;
+		HeadlessEngine engine = new HeadlessEngine(threads, 20);
+		new EngineProtocol(engine, System.out).run(new BufferedReader(new InputStreamReader(System.in)));
+		engine.shutdown();
+	}
+}
@@ -0,0 +1,61 @@
+package model;
+
+/**
+ * Heuristics the AI can score a board with, selected per board with
+ * 	BoardState.setEvaluator and used by calculateHeuristic.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public enum Evaluator {
+
+	/** Counts the 2-in-a-rows of Pentatron's color. **/
+	PAIRS {
+		@Override
+		int evaluate(BoardState bs, char color) {
+			return bs.count2inRow(color);
+		}
+	},
+
+	/**
+	 * Scores each of the 32 lines of five for both colors. A line holding
+	 * 	tiles of both colors can no longer be won and scores nothing; otherwise
+	 * 	it scores by how many tiles it holds, for the color holding them.
+	 */
+	LINES {
+		@Override
+		int evaluate(BoardState bs, char color) {
+			long own = (color == 'W') ? bs.getWhite() : bs.getBlack();
+			long other = (color == 'W') ? bs.getBlack() : bs.getWhite();
+			int sum = 0;
+
+			for (long line : BoardState.LINES) {
+				sum += LINE_SCORE[Long.bitCount(own & line) * 6 + Long.bitCount(other & line)];
+			}
+			return Math.max(-MAX_SCORE, Math.min(MAX_SCORE, sum));
+		}
+	};
+
+	/** Scores stay below a won game. **/
+	private static final int MAX_SCORE = AlphaBeta.WIN - 1;
+
+	/** Score of a line by its own tiles * 6 + other tiles. **/
+	private static final int[] LINE_SCORE = new int[36];
+
+	static {
+		int[] weight = {0, 1, 3, 9, 27, 81};
+		for (int own = 0; own <= 5; own++) {
+			LINE_SCORE[own * 6] = weight[own];
+			LINE_SCORE[own] = -weight[own];
+		}
+	}
+
+	/**
+	 * Scores a board.
+	 *
+	 * @param bs board to score
+	 * @param color color to score the board for
+	 * @return higher is better for color
+	 */
+	abstract int evaluate(BoardState bs, char color);
+}
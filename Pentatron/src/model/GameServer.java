@@ -0,0 +1,387 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Plays many games of Pentago at once over TCP, one game at a time per
+ * 	connection. Each connection is a session with a thread of its own, a
+ * 	virtual thread where the Java runtime has them, that only reads lines and
+ * 	plays them into its PentagoGame. Pentatron's moves are searched on the
+ * 	workers of a SearchScheduler, so the number of games does not change the
+ * 	number of searches running at once. Each worker has one engine, with its
+ * 	transposition table and solver, that the search it runs borrows; games
+ * 	hold no engine of their own, so neither does the memory grow with them.
+ *
+ * 	Each game has a time budget for all of Pentatron's moves. A move may use
+ * 	the budget left split over the moves Pentatron still has to make, but no
+ * 	more than the longest time per move; time spent waiting for a worker is
+ * 	not counted.
+ *
+ * 	The protocol, one command per line, moves written the way the player
+ * 	enters them, e.g. "1/5 2r":
+ *
+ * 	new &lt;W|B&gt; &lt;first|second&gt;  starts a game with the client playing the
+ * 	                          color, moving first or second; replies "ok"
+ * 	move &lt;move&gt;               plays the client's move
+ * 	board                     replies "board &lt;36 tiles&gt; &lt;color to move&gt;",
+ * 	                          tiles row by row from the top
+ * 	quit                      ends the session
+ *
+ * 	Pentatron's moves are sent as "move &lt;move&gt;" as soon as they are found,
+ * 	the end of a game as "over &lt;W|B|.&gt;" with the winning color, '.' for a
+ * 	tie, and errors as "error &lt;message&gt;". A session whose search failed, or
+ * 	was cancelled because the server is closing, is ended after the error.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class GameServer {
+
+	public static final int DEFAULT_PORT = 4343;
+
+	/** Milliseconds of thinking for all of Pentatron's moves in a game. **/
+	public static final long DEFAULT_BUDGET = 30000;
+
+	/** Transposition table size of each worker's engine; it searches on one thread, so it is small. **/
+	private static final int TABLE_BITS = 18;
+
+	private final ServerSocket server;
+	private final SearchScheduler scheduler;
+	private final BlockingQueue<Search> engines;
+	private final ThreadFactory sessionThreads;
+	private final Set<Socket> sessions;
+	private final long budget;
+	private final long moveLimit;
+
+	/**
+	 * Creates a server listening on a port. Games are only played once run()
+	 * 	is called.
+	 *
+	 * @param port port to listen on, 0 for any free port
+	 * @param workers number of searches run at once
+	 * @param budget milliseconds of thinking for all of Pentatron's moves in a game
+	 * @param moveLimit milliseconds of thinking per move at most
+	 * @throws IOException if the port cannot be opened
+	 */
+	public GameServer(int port, int workers, long budget, long moveLimit) throws IOException {
+		server = new ServerSocket(port);
+		scheduler = new SearchScheduler(workers);
+		// At most one search per worker runs at once, so one engine each is enough
+		engines = new LinkedBlockingQueue<>();
+		for (int i = 0; i < workers; i++) {
+			engines.add(new Search('W', 'B', 1, TABLE_BITS));
+		}
+		sessionThreads = sessionThreads();
+		sessions = ConcurrentHashMap.newKeySet();
+		this.budget = budget;
+		this.moveLimit = moveLimit;
+	}
+
+	/**
+	 * Returns a factory of virtual threads if the Java runtime has them (21 on),
+	 * 	found by reflection so the server also runs on older runtimes, where
+	 * 	it falls back to platform threads.
+	 */
+	private static ThreadFactory sessionThreads() {
+		try {
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			Object virtual = Thread.class.getMethod("ofVirtual").invoke(null);
+			virtual = builder.getMethod("name", String.class, long.class).invoke(virtual, "pentatron-session-", 0L);
+			return (ThreadFactory) builder.getMethod("factory").invoke(virtual);
+		} catch (ReflectiveOperationException e) {
+			return r -> {
+				Thread t = new Thread(r, "pentatron-session");
+				t.setDaemon(true);
+				return t;
+			};
+		}
+	}
+
+	/** Returns the port the server listens on. **/
+	public int getPort() {
+		return server.getLocalPort();
+	}
+
+	/**
+	 * Accepts connections and starts a session for each until close() is called.
+	 */
+	public void run() {
+		while (!server.isClosed()) {
+			try {
+				Socket socket = server.accept();
+				sessions.add(socket);
+				sessionThreads.newThread(new Session(socket)).start();
+			} catch (IOException e) {
+				if (!server.isClosed()) {
+					System.err.println("Accepting failed: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting connections and the workers, and ends every session.
+	 * 	Queued searches are cancelled; their sessions reply with an error. Each
+	 * 	session's input is shut, so it reads no more commands, replies to the
+	 * 	one it runs and closes its connection.
+	 */
+	public void close() {
+		try {
+			server.close();
+		} catch (IOException e) {
+			// Closing anyway
+		}
+		scheduler.shutdown();
+		for (Socket socket : sessions) {
+			try {
+				socket.shutdownInput();
+			} catch (IOException e) {
+				// Ending the others anyway
+			}
+		}
+	}
+
+	/**
+	 * The engine of one game. It searches on one of the worker engines, lent
+	 * 	to it for each search by lease() and given back by release(). Worker
+	 * 	engines play either color, with 'W' as their maximizing color, so the
+	 * 	game's side to move is mapped to it. Games on the server do not ponder,
+	 * 	and hold no threads to shut down.
+	 */
+	private static final class LeasedEngine implements Engine {
+		private final boolean whiteMax;
+		private volatile Search leased;
+		private int depthLimit = AlphaBeta.MAX_DEPTH;
+		private EndgameTable endgame;
+		private long nodes;
+		private long nodesPerSecond;
+
+		/** Creates the engine of a game where maxColor is the maximizing color. **/
+		LeasedEngine(char maxColor) {
+			whiteMax = maxColor == 'W';
+		}
+
+		/** Lends a worker engine to the game until release(). **/
+		void lease(Search engine) {
+			engine.setEndgameTable(endgame);
+			engine.setDepthLimit(depthLimit);
+			leased = engine;
+		}
+
+		/** Takes the lent engine back, and returns it. **/
+		Search release() {
+			Search engine = leased;
+			leased = null;
+			return engine;
+		}
+
+		@Override
+		public int search(BoardState board, boolean maxPlayer, long timeLimit) {
+			Search engine = leased;
+			if (engine == null) {
+				throw new IllegalStateException("no worker engine lent");
+			}
+			int move = engine.search(board, maxPlayer == whiteMax, timeLimit);
+			nodes = engine.getNodes();
+			nodesPerSecond = engine.getNodesPerSecond();
+			return move;
+		}
+
+		@Override
+		public void stop() {
+			Search engine = leased;
+			if (engine != null) {
+				engine.stop();
+			}
+		}
+
+		@Override
+		public void setDepthLimit(int depth) {
+			depthLimit = depth;
+		}
+
+		@Override
+		public long getNodes() {
+			return nodes;
+		}
+
+		@Override
+		public long getNodesPerSecond() {
+			return nodesPerSecond;
+		}
+
+		@Override
+		public void setEndgameTable(EndgameTable endgame) {
+			this.endgame = endgame;
+		}
+
+		@Override
+		public void ponder(BoardState board, boolean maxPlayer) {
+		}
+
+		@Override
+		public void stopPondering() {
+		}
+
+		@Override
+		public void shutdown() {
+		}
+	}
+
+	/** One connection: reads commands and plays them into its game. **/
+	private class Session implements Runnable {
+		private final Socket socket;
+		private final SearchScheduler.Client client;
+		private PrintWriter out;
+		private PentagoGame game;
+		private LeasedEngine engine;
+		private char pentaColor;
+		private char playerColor;
+
+		Session(Socket socket) {
+			this.socket = socket;
+			client = new SearchScheduler.Client();
+		}
+
+		@Override
+		public void run() {
+			try (Socket s = socket;
+					BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8))) {
+				out = new PrintWriter(s.getOutputStream(), true, StandardCharsets.UTF_8);
+				String line;
+				while ((line = in.readLine()) != null && execute(line.trim().split("\\s+"))) {
+				}
+			} catch (IOException e) {
+				// Connection lost
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				if (game != null) {
+					game.shutdown();
+				}
+				sessions.remove(socket);
+			}
+		}
+
+		/** Runs one command; returns false on quit, or when the session cannot go on. **/
+		private boolean execute(String[] words) throws InterruptedException {
+			try {
+				switch (words[0]) {
+				case "":
+					break;
+				case "new":
+					newGame(words);
+					break;
+				case "move":
+					if (words.length != 3) {
+						throw new IllegalArgumentException("expected move <tile> <rotation>");
+					}
+					playersMove(EngineProtocol.parseMove(words[1], words[2]));
+					break;
+				case "board":
+					char toMove = (game == null || game.isOver()) ? '.' : game.isPentasTurn() ? pentaColor : playerColor;
+					out.println("board " + EngineProtocol.tiles(game == null ? new BoardState() : game.getBoard()) + " " + toMove);
+					break;
+				case "quit":
+					return false;
+				default:
+					out.println("error unknown command " + words[0]);
+				}
+			} catch (CancellationException e) {
+				// Before IllegalStateException, which it extends
+				out.println("error server closing");
+				return false;
+			} catch (ExecutionException e) {
+				out.println("error search failed: " + e.getCause());
+				return false;
+			} catch (IllegalArgumentException | IllegalStateException e) {
+				out.println("error " + e.getMessage());
+			}
+			return true;
+		}
+
+		/** Starts a game, and answers with Pentatron's move if it moves first. **/
+		private void newGame(String[] words) throws InterruptedException, ExecutionException {
+			if (words.length != 3 || (!words[1].equals("W") && !words[1].equals("B"))
+					|| (!words[2].equals("first") && !words[2].equals("second"))) {
+				throw new IllegalArgumentException("expected new <W|B> <first|second>");
+			}
+			if (game != null) {
+				game.shutdown();
+			}
+			playerColor = words[1].charAt(0);
+			pentaColor = (playerColor == 'W') ? 'B' : 'W';
+			int starting = words[2].equals("second") ? 0 : 1;
+			engine = new LeasedEngine(pentaColor);
+			game = new PentagoGame(starting, pentaColor, playerColor, moveLimit, engine, false);
+			// The budget, and the client's place in the queue, start over with each game
+			client.reset();
+			out.println("ok");
+			if (game.isPentasTurn()) {
+				pentasMove();
+			}
+		}
+
+		/** Plays the client's move, then Pentatron's. **/
+		private void playersMove(int move) throws InterruptedException, ExecutionException {
+			if (game == null || game.isOver() || game.isPentasTurn()) {
+				throw new IllegalStateException("not your turn");
+			}
+			if (!game.playersMove(move)) {
+				throw new IllegalArgumentException("illegal move " + Move.toString(move));
+			}
+			if (game.isOver()) {
+				out.println("over " + game.getWinner());
+			} else {
+				pentasMove();
+			}
+		}
+
+		/** Searches Pentatron's move on a worker, within the game's time budget, and plays it. **/
+		private void pentasMove() throws InterruptedException, ExecutionException {
+			long left = budget - client.getUsedNanos() / 1000000;
+			int moves = (game.getBoard().getEmptyCount() + 1) / 2;
+			game.setTimeLimit(Math.max(1, Math.min(moveLimit, left / moves)));
+			int move = scheduler.run(client, () -> {
+				engine.lease(engines.take());
+				try {
+					return game.pentasMove();
+				} finally {
+					engines.add(engine.release());
+				}
+			});
+			out.println("move " + Move.toString(move));
+			if (game.isOver()) {
+				out.println("over " + game.getWinner());
+			}
+		}
+	}
+
+	/**
+	 * Runs a server until the process is stopped.
+	 *
+	 * @param args [port] [workers] [budget in milliseconds] [milliseconds per move]
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		int workers = (args.length > 1) ? Integer.parseInt(args[1]) : PentagoGame.DEFAULT_THREADS;
+		long budget = (args.length > 2) ? Long.parseLong(args[2]) : DEFAULT_BUDGET;
+		long moveLimit = (args.length > 3) ? Long.parseLong(args[3]) : PentagoGame.DEFAULT_TIME_LIMIT;
+		GameServer server = new GameServer(port, workers, budget, moveLimit);
+		System.out.println("Pentatron listening on port " + server.getPort());
+		server.run();
+	}
+}
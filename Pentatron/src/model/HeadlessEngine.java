@@ -0,0 +1,239 @@
+package model;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pentatron without a console, for programs that want its moves: set a
+ * 	position, start a search with go(), stop it early with stop(), and get the
+ * 	best move back. Searches run on a thread of their own, so a caller can
+ * 	wait for the move with go() or keep working with goAsync().
+ *
+ * 	The engine plays either color, whichever is to move. Moves are looked up
+ * 	in the opening book before they are searched, like in PentagoGame.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class HeadlessEngine {
+
+	/** Milliseconds a search without a time limit runs at most. **/
+	public static final long NO_TIME_LIMIT = 24 * 60 * 60 * 1000L;
+
+	/** Depth of a search without a depth limit. **/
+	public static final int NO_DEPTH_LIMIT = AlphaBeta.MAX_DEPTH;
+
+	// Heuristic, the same as PentagoGame's; the book and endgame table are the shared defaults
+	private static final Evaluator EVALUATOR = Evaluator.LINES;
+
+	private final Engine engine;
+	private final ExecutorService runner;
+
+	// The position, changed only while no search runs
+	private final BoardState board;
+	private char toMove;
+	private boolean over;
+
+	private boolean searching;
+	private CompletableFuture<Integer> running;
+	private boolean bookMove;
+
+	/**
+	 * Creates an engine that searches with alpha-beta.
+	 *
+	 * @param threads number of threads to search with, at least 1
+	 * @param tableBits the transposition table holds 2^tableBits entries
+	 */
+	public HeadlessEngine(int threads, int tableBits) {
+		this(new Search('W', 'B', threads, tableBits));
+	}
+
+	/**
+	 * Creates an engine that searches with the given engine.
+	 *
+	 * @param engine engine with 'W' as the maximizing color and 'B' as the
+	 * 	minimizing color; shut down by shutdown()
+	 */
+	public HeadlessEngine(Engine engine) {
+		this.engine = engine;
+		engine.setEndgameTable(EndgameTable.getDefault());
+		runner = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "pentatron-go");
+			t.setDaemon(true);
+			return t;
+		});
+		board = new BoardState();
+		board.setEvaluator(EVALUATOR);
+		toMove = 'W';
+	}
+
+	/** Sets up the empty board with white to move. **/
+	public synchronized void newGame() {
+		setPosition(new BoardState(), 'W');
+	}
+
+	/**
+	 * Sets up a board.
+	 *
+	 * @param bs board; copied
+	 * @param color color to move
+	 * @throws IllegalStateException if a search is running
+	 */
+	public synchronized void setPosition(BoardState bs, char color) {
+		if (searching) {
+			throw new IllegalStateException("Search running");
+		}
+		board.copy(bs);
+		board.setEvaluator(EVALUATOR);
+		toMove = color;
+		over = board.isGameOver();
+	}
+
+	/**
+	 * Plays a move for the color to move.
+	 *
+	 * @param move packed move
+	 * @throws IllegalArgumentException if the move is not legal
+	 * @throws IllegalStateException if the game is over or a search is running
+	 */
+	public synchronized void play(int move) {
+		if (searching) {
+			throw new IllegalStateException("Search running");
+		} else if (over) {
+			throw new IllegalStateException("Game over");
+		} else if (!board.isLegal(Move.block(move), Move.pos(move), Move.rotBlock(move), Move.rotation(move))) {
+			throw new IllegalArgumentException("Illegal move " + Move.toString(move));
+		}
+		over = board.makeMove(move, toMove);
+		toMove = (toMove == 'W') ? 'B' : 'W';
+	}
+
+	/**
+	 * Searches the board and waits for the best move.
+	 *
+	 * @param timeLimit milliseconds to search for, NO_TIME_LIMIT for none
+	 * @param depth deepest depth to search, NO_DEPTH_LIMIT for none
+	 * @return best packed move
+	 * @throws IllegalStateException if the game is over or a search is running
+	 */
+	public int go(long timeLimit, int depth) {
+		return goAsync(timeLimit, depth).join();
+	}
+
+	/**
+	 * Starts searching the board and returns at once. The search ends at the
+	 * 	time limit, at the depth limit, or when stop() is called.
+	 *
+	 * @param timeLimit milliseconds to search for, NO_TIME_LIMIT for none
+	 * @param depth deepest depth to search, NO_DEPTH_LIMIT for none
+	 * @return the best packed move, once the search ends
+	 * @throws IllegalStateException if the game is over or a search is running
+	 */
+	public synchronized CompletableFuture<Integer> goAsync(long timeLimit, int depth) {
+		if (searching) {
+			throw new IllegalStateException("Search running");
+		} else if (over) {
+			throw new IllegalStateException("Game over");
+		}
+		BoardState bs = new BoardState(board);
+		char color = toMove;
+		searching = true;
+
+		CompletableFuture<Integer> result = new CompletableFuture<>();
+		running = result;
+		runner.execute(() -> {
+			int move = Move.NONE;
+			RuntimeException failure = null;
+			try {
+				move = OpeningBook.getDefault().lookup(bs, color);
+				bookMove = move != Move.NONE;
+				if (!bookMove) {
+					engine.setDepthLimit(depth);
+					move = engine.search(bs, color == 'W', timeLimit);
+				}
+			} catch (RuntimeException e) {
+				failure = e;
+			}
+			// Done before the result is given, so the caller may search again right away
+			synchronized (this) {
+				searching = false;
+				notifyAll();
+			}
+			if (failure == null) {
+				result.complete(move);
+			} else {
+				result.completeExceptionally(failure);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Makes the running search, if any, return its best move so far, and
+	 * 	waits until it has.
+	 */
+	public void stop() {
+		CompletableFuture<Integer> result;
+		synchronized (this) {
+			// A stop that comes before the engine started searching is lost, so it
+			// 	is sent again until the search is over
+			while (searching) {
+				engine.stop();
+				try {
+					wait(10);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+			result = running;
+		}
+		// The result is given out of the lock, so what runs on it may use the engine
+		if (result != null) {
+			result.handle((move, failure) -> move).join();
+		}
+	}
+
+	/** Returns true while a search runs. **/
+	public synchronized boolean isSearching() {
+		return searching;
+	}
+
+	/** Returns true if the last search found its move in the opening book. **/
+	public synchronized boolean isBookMove() {
+		return bookMove;
+	}
+
+	/** Returns a copy of the board. **/
+	public synchronized BoardState getBoard() {
+		return new BoardState(board);
+	}
+
+	/** Returns the color to move. **/
+	public synchronized char getToMove() {
+		return toMove;
+	}
+
+	/** Returns true if the game on the board is over. **/
+	public synchronized boolean isOver() {
+		return over;
+	}
+
+	/** Returns the winning color once the game is over, '.' for a tie. **/
+	public synchronized char getWinner() {
+		return board.getWinner();
+	}
+
+	/** Returns the engine searching the moves, for its results. **/
+	public Engine getEngine() {
+		return engine;
+	}
+
+	/** Stops a running search and the engine's threads for good. **/
+	public void shutdown() {
+		stop();
+		engine.shutdown();
+		runner.shutdownNow();
+	}
+}
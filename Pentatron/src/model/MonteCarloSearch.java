@@ -0,0 +1,480 @@
+package model;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Picks a move by Monte Carlo tree search (UCT). Each playout walks down the
+ * 	tree from the root, taking the move with the best upper confidence bound,
+ * 	adds the moves of the board it ends on, then plays random moves to the end
+ * 	of the game and counts the result for every board on the way. The most
+ * 	played move at the root is returned.
+ *
+ * 	The tree is kept in fixed primitive arrays, and random games are played on
+ * 	the board itself, so searching allocates nothing. Once the tree is full
+ * 	playouts go on without adding boards. The part of the tree below the board
+ * 	actually reached is kept for the next search.
+ *
+ * 	Helper threads play at the same time on the same tree. Walking the tree is
+ * 	locked, random games are not. A board on a walk counts as a lost game until
+ * 	the walk's result comes back (virtual loss), so threads spread out over
+ * 	different moves.
+ *
+ * 	While the other player thinks, ponder() plays random games from their
+ * 	board, so the tree below the move they pick is already grown.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class MonteCarloSearch implements Engine {
+
+	/** Weight of the exploration term of the upper confidence bound. **/
+	private static final double EXPLORATION = 0.7;
+
+	private final char maxColor;
+	private final char minColor;
+
+	// The tree: one index per board, the children of a board stored next to each other.
+	// Results are in half games (win 2, draw 1) for the player who moved into the board.
+	private final int maxNodes;
+	private final int[] child;
+	private final short[] childCount;
+	private final short[] move;
+	private final int[] visits;
+	private final int[] value;
+	private final char[] winner;
+	private int size;
+	private int root;
+	private final BoardState rootBoard;
+	private final BoardState scratch;
+	private char rootColor;
+
+	private final Playouts main;
+	private final Playouts[] helpers;
+	private final ExecutorService pool;
+	private final Future<?>[] running;
+
+	/** Milliseconds background playouts run at most if never stopped. **/
+	private static final long PONDER_LIMIT = 600000;
+	private ExecutorService ponderPool;
+	private Future<?> pondering;
+
+	// Exact results of late boards, ending random games early
+	private EndgameTable endgame;
+	private int endgameEmpty;
+
+	// Limits and result of the current search
+	private long maxPlayouts;
+	private long deadline;
+	private long playouts;
+	private long nanos;
+	private int bestMove;
+
+	/**
+	 * Creates a search.
+	 *
+	 * @param maxColor color of the maximizing player
+	 * @param minColor color of the minimizing player
+	 * @param threads number of threads to search with, at least 1
+	 * @param maxNodes most boards the tree may hold
+	 */
+	public MonteCarloSearch(char maxColor, char minColor, int threads, int maxNodes) {
+		this.maxColor = maxColor;
+		this.minColor = minColor;
+		this.maxNodes = maxNodes;
+		child = new int[maxNodes];
+		childCount = new short[maxNodes];
+		move = new short[maxNodes];
+		visits = new int[maxNodes];
+		value = new int[maxNodes];
+		winner = new char[maxNodes];
+		rootBoard = new BoardState();
+		scratch = new BoardState();
+		main = new Playouts(1);
+		helpers = new Playouts[threads - 1];
+		running = new Future<?>[threads - 1];
+		for (int i = 0; i < helpers.length; i++) {
+			helpers[i] = new Playouts(i + 2);
+		}
+		pool = (threads > 1) ? Executors.newFixedThreadPool(threads - 1, r -> {
+			Thread t = new Thread(r, "pentatron-mcts");
+			t.setDaemon(true);
+			return t;
+		}) : null;
+		maxPlayouts = Long.MAX_VALUE;
+		endgameEmpty = -1;
+		bestMove = Move.NONE;
+	}
+
+	/**
+	 * Plays random games until the time limit passes or the playout limit is
+	 * 	reached, then returns the most played move.
+	 *
+	 * @param board board to search, must not be over; not changed
+	 * @param maxPlayer true if the maximizing color is to move
+	 * @param timeLimit milliseconds to search for
+	 * @return best packed move
+	 */
+	public int search(BoardState board, boolean maxPlayer, long timeLimit) {
+		stopPondering();
+		long start = System.nanoTime();
+		char color = maxPlayer ? maxColor : minColor;
+
+		reroot(board, color);
+		deadline = start + timeLimit * 1000000L;
+		playouts = 0;
+		for (int i = 0; i < helpers.length; i++) {
+			running[i] = pool.submit(helpers[i]);
+		}
+		main.run();
+		joinHelpers();
+
+		bestMove = move[mostPlayed()];
+		nanos = System.nanoTime() - start;
+		return bestMove;
+	}
+
+	/** Waits for the helper threads to finish their playouts. **/
+	private void joinHelpers() {
+		for (int i = 0; i < helpers.length; i++) {
+			try {
+				running[i].get();
+			} catch (Exception e) {
+				throw new IllegalStateException("Search thread failed", e);
+			}
+		}
+	}
+
+	/**
+	 * Sets the table of exact results that ends random games once they reach it.
+	 *
+	 * @param endgame endgame table
+	 */
+	public void setEndgameTable(EndgameTable endgame) {
+		this.endgame = endgame;
+		endgameEmpty = endgame.getMaxEmpty();
+	}
+
+	/**
+	 * Starts playing random games from the board in the background, growing
+	 * 	the tree while the player to move thinks. Runs until stopPondering() or
+	 * 	the next search() is called.
+	 *
+	 * @param board board to search, must not be over; copied, so it may change
+	 * @param maxPlayer true if the maximizing color is to move
+	 */
+	public void ponder(BoardState board, boolean maxPlayer) {
+		stopPondering();
+		if (ponderPool == null) {
+			ponderPool = Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r, "pentatron-ponder");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+
+		reroot(board, maxPlayer ? maxColor : minColor);
+		deadline = System.nanoTime() + PONDER_LIMIT * 1000000L;
+		playouts = 0;
+		for (int i = 0; i < helpers.length; i++) {
+			running[i] = pool.submit(helpers[i]);
+		}
+		pondering = ponderPool.submit(main);
+	}
+
+	/** Stops the background playouts, if any are running, and waits for them to end. **/
+	public void stopPondering() {
+		if (pondering == null) {
+			return;
+		}
+		synchronized (this) {
+			deadline = 0;
+		}
+		try {
+			pondering.get();
+		} catch (Exception e) {
+			throw new IllegalStateException("Ponder thread failed", e);
+		}
+		joinHelpers();
+		pondering = null;
+	}
+
+	/** Returns the child of the root played most often. **/
+	private int mostPlayed() {
+		int first = child[root];
+		int best = first;
+		for (int c = first + 1; c < first + childCount[root]; c++) {
+			if (visits[c] > visits[best]) {
+				best = c;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Makes the board the root of the tree. Keeps the tree below it if it is
+	 * 	the old root, or one or two moves after it, and the tree is at most half
+	 * 	full; otherwise starts a new tree.
+	 */
+	private void reroot(BoardState board, char color) {
+		int found = -1;
+		if (size > 0 && size <= maxNodes / 2) {
+			char other = (rootColor == 'W') ? 'B' : 'W';
+			if (color == rootColor && sameBoard(rootBoard, board)) {
+				found = root;
+			}
+			for (int c = child[root]; found < 0 && c < child[root] + childCount[root]; c++) {
+				scratch.copy(rootBoard);
+				scratch.makeMove(move[c], rootColor);
+				if (color == other && sameBoard(scratch, board)) {
+					found = c;
+				}
+				for (int g = child[c]; found < 0 && g < child[c] + childCount[c]; g++) {
+					scratch.makeMove(move[g], other);
+					if (color == rootColor && sameBoard(scratch, board)) {
+						found = g;
+					}
+					scratch.unmakeMove();
+				}
+			}
+		}
+
+		if (found < 0) {
+			found = 0;
+			size = 1;
+			childCount[0] = 0;
+			visits[0] = 0;
+			value[0] = 0;
+			winner[0] = 0;
+		}
+		root = found;
+		rootBoard.copy(board);
+		rootColor = color;
+		if (childCount[root] == 0) {
+			expand(root, rootBoard, color, main.moves);
+		}
+	}
+
+	/** Returns true if both boards hold the same tiles. **/
+	private static boolean sameBoard(BoardState a, BoardState b) {
+		return a.getWhite() == b.getWhite() && a.getBlack() == b.getBlack();
+	}
+
+	/**
+	 * Adds the moves of a board as its children, if they fit in the tree.
+	 * 	Called with the tree locked.
+	 */
+	private void expand(int node, BoardState bs, char color, int[] moves) {
+		int count = bs.generateMoves(moves, color);
+		if (size + count > maxNodes) {
+			return;
+		}
+		child[node] = size;
+		for (int i = 0; i < count; i++) {
+			int c = size++;
+			childCount[c] = 0;
+			move[c] = (short) moves[i];
+			visits[c] = 0;
+			value[c] = 0;
+			winner[c] = 0;
+		}
+		childCount[node] = (short) count;
+	}
+
+	/**
+	 * Returns the child with the best upper confidence bound: its share of won
+	 * 	games plus a bonus for being played less often than its siblings. A child
+	 * 	not played yet comes first. Called with the tree locked.
+	 */
+	private int select(int node) {
+		int first = child[node];
+		double log = Math.log(Math.max(visits[node], 1));
+		int best = first;
+		double bestBound = -1;
+		for (int c = first; c < first + childCount[node]; c++) {
+			if (visits[c] == 0) {
+				return c;
+			}
+			double bound = value[c] / (2.0 * visits[c]) + EXPLORATION * Math.sqrt(log / visits[c]);
+			if (bound > bestBound) {
+				best = c;
+				bestBound = bound;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Work of one thread: playouts on its own board until the search is over.
+	 */
+	private class Playouts implements Runnable {
+
+		private final BoardState bs;
+		private final int[] path;
+		private final int[] moves;
+		private long seed;
+
+		Playouts(long seed) {
+			bs = new BoardState();
+			path = new int[AlphaBeta.MAX_DEPTH + 1];
+			moves = new int[Move.COUNT];
+			this.seed = seed * 0x9E3779B97F4A7C15L;
+		}
+
+		@Override
+		public void run() {
+			while (playout()) {
+			}
+		}
+
+		/**
+		 * Walks down the tree, plays a random game from the board reached and
+		 * 	counts its result.
+		 *
+		 * @return false once the search is over
+		 */
+		private boolean playout() {
+			int length = 0;
+			char color;
+			char result;
+
+			synchronized (MonteCarloSearch.this) {
+				// The root needs moves before the search can end, however short it is
+				if (playouts >= maxPlayouts || (System.nanoTime() > deadline && childCount[root] != 0)) {
+					return false;
+				}
+				playouts++;
+
+				bs.copy(rootBoard);
+				color = rootColor;
+				int node = root;
+				visits[node]++;
+				while (winner[node] == 0) {
+					if (childCount[node] == 0 && visits[node] > 1) {
+						expand(node, bs, color, moves);
+					}
+					if (childCount[node] == 0) {
+						break;
+					}
+					node = select(node);
+					visits[node]++;	// Counts as a lost game until the result is in
+					path[length++] = node;
+					if (bs.makeMove(move[node], color)) {
+						winner[node] = bs.getWinner();
+					}
+					color = (color == 'W') ? 'B' : 'W';
+				}
+				result = winner[node];
+			}
+
+			if (result == 0) {
+				result = randomGame(color);
+			}
+
+			synchronized (MonteCarloSearch.this) {
+				char mover = rootColor;
+				for (int i = 0; i < length; i++) {
+					value[path[i]] += (result == mover) ? 2 : (result == '.') ? 1 : 0;
+					mover = (mover == 'W') ? 'B' : 'W';
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Plays random moves from the board to the end of the game.
+		 *
+		 * @return the winning color, or '.' for a tie
+		 */
+		private char randomGame(char color) {
+			while (true) {
+				if (bs.getEmptyCount() <= endgameEmpty) {
+					int result = endgame.probe(bs, color);
+					if (result != ProofNumberSearch.UNKNOWN) {
+						return (result == ProofNumberSearch.DRAW) ? '.'
+								: (result == ProofNumberSearch.WIN) ? color : (color == 'W') ? 'B' : 'W';
+					}
+				}
+				long empty = ~(bs.getWhite() | bs.getBlack()) & BoardState.FULL;
+				for (int k = (int) (random() % Long.bitCount(empty)); k > 0; k--) {
+					empty &= empty - 1;
+				}
+				int square = Long.numberOfTrailingZeros(empty);
+				if (bs.makeMove((square << 3) | (int) (random() & 7), color)) {
+					return bs.getWinner();
+				}
+				color = (color == 'W') ? 'B' : 'W';
+			}
+		}
+
+		/** Returns the next random number, never negative (xorshift). **/
+		private long random() {
+			seed ^= seed << 13;
+			seed ^= seed >>> 7;
+			seed ^= seed << 17;
+			return seed >>> 1;
+		}
+	}
+
+	/** Ends the playouts of a search running on another thread. **/
+	public void stop() {
+		synchronized (this) {
+			deadline = 0;
+		}
+	}
+
+	/**
+	 * Plays random games by the time limit, not to a depth, so the limit is
+	 * 	ignored.
+	 */
+	public void setDepthLimit(int depth) {
+	}
+
+	/**
+	 * Sets the most random games a search may play, Long.MAX_VALUE for no limit
+	 * 	other than time.
+	 *
+	 * @param maxPlayouts random games per search
+	 */
+	public void setMaxPlayouts(long maxPlayouts) {
+		this.maxPlayouts = maxPlayouts;
+	}
+
+	/**
+	 * Returns the share of games the returned move won in the last search,
+	 * 	counting a tie as half.
+	 *
+	 * @return rate between 0 and 1
+	 */
+	public double getWinRate() {
+		int best = mostPlayed();
+		return visits[best] == 0 ? 0 : value[best] / (2.0 * visits[best]);
+	}
+
+	/** Returns the number of boards in the tree. **/
+	public int getTreeSize() {
+		return size;
+	}
+
+	/** Returns the number of random games played in the last search. **/
+	public long getNodes() {
+		return playouts;
+	}
+
+	/** Returns the random games played per second in the last search. **/
+	public long getNodesPerSecond() {
+		return nanos == 0 ? 0 : playouts * 1000000000L / nanos;
+	}
+
+	/** Stops the helper threads for good. **/
+	public void shutdown() {
+		stopPondering();
+		if (pool != null) {
+			pool.shutdownNow();
+		}
+		if (ponderPool != null) {
+			ponderPool.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package model;
+
+/**
+ * Packs a Pentago move into a single int so the search can store moves in
+ * 	primitive arrays. A move is (square << 3) | (rotBlock << 1) | direction,
+ * 	where square is block * 9 + pos and direction is 1 for clockwise.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public final class Move {
+
+	/** Number of distinct packed moves, 36 positions x 4 blocks x 2 directions. **/
+	public static final int COUNT = 288;
+
+	/** Returned when there is no move. **/
+	public static final int NONE = -1;
+
+	private Move() {
+	}
+
+	/**
+	 * Packs a move.
+	 *
+	 * @param block block of the placed tile
+	 * @param pos position inside block
+	 * @param rotBlock block to be rotated
+	 * @param rot 'r' for clockwise, 'l' for counter-clockwise
+	 * @return packed move
+	 */
+	public static int encode(int block, int pos, int rotBlock, char rot) {
+		return ((block * 9 + pos) << 3) | (rotBlock << 1) | (rot == 'r' ? 1 : 0);
+	}
+
+	/** Returns the placed position as block * 9 + pos. **/
+	public static int square(int move) {
+		return move >>> 3;
+	}
+
+	/** Returns the block of the placed tile. **/
+	public static int block(int move) {
+		return (move >>> 3) / 9;
+	}
+
+	/** Returns the position inside the block of the placed tile. **/
+	public static int pos(int move) {
+		return (move >>> 3) % 9;
+	}
+
+	/** Returns the rotated block. **/
+	public static int rotBlock(int move) {
+		return (move >>> 1) & 3;
+	}
+
+	/** Returns the direction of rotation, 'r' or 'l'. **/
+	public static char rotation(int move) {
+		return (move & 1) != 0 ? 'r' : 'l';
+	}
+
+	/**
+	 * Parses a move in the same format the player enters it, e.g. "1/5 2r".
+	 *
+	 * @param move readable move
+	 * @return packed move
+	 */
+	public static int parse(String move) {
+		return encode(move.charAt(0) - '1', move.charAt(2) - '1', move.charAt(4) - '1',
+				Character.toLowerCase(move.charAt(5)));
+	}
+
+	/**
+	 * Returns the move in the same format the player enters it, e.g. "1/5 2r".
+	 *
+	 * @param move packed move
+	 * @return readable move
+	 */
+	public static String toString(int move) {
+		if (move == NONE) {
+			return "none";
+		}
+		return (block(move) + 1) + "/" + (pos(move) + 1) + " " + (rotBlock(move) + 1) + rotation(move);
+	}
+}
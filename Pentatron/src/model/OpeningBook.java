@@ -0,0 +1,240 @@
+package model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Best moves for the first boards of a game, searched ahead of time so they
+ * 	need not be searched during play.
+ *
+ * 	Boards are looked up by the tiles of the player to move and of the other
+ * 	player, turned into their canonical symmetry, so a board, its symmetric
+ * 	boards and the same board with the colors swapped share one entry. The
+ * 	file holds a header and then the entries sorted by key:
+ *
+ * 	int MAGIC, int count, then count times (long key, short move)
+ *
+ * 	with each move in the canonical symmetry of its board. The file is memory
+ * 	mapped and searched in place, so games running at the same time share one
+ * 	copy, and a lookup does not allocate.
+ *
+ * 	Usage: OpeningBook [file] [plies] [millisPerBoard] [threads] builds the
+ * 	book for every board up to the given number of moves into the game.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class OpeningBook {
+
+	/** File the game reads its book from, in the working directory. **/
+	public static final String DEFAULT_FILE = "pentatron.book";
+
+	/** First int of a book file. **/
+	private static final int MAGIC = 0x50424B31;	// "PBK1"
+	private static final int HEADER = 8;
+	private static final int ENTRY = 10;
+
+	private final ByteBuffer entries;
+	private final int count;
+
+	/** Creates a book over the given entries. **/
+	private OpeningBook(ByteBuffer entries, int count) {
+		this.entries = entries;
+		this.count = count;
+	}
+
+	/**
+	 * Maps a book file into memory. A missing file gives an empty book, so a
+	 * 	game without a book simply searches every move.
+	 *
+	 * @param file book file
+	 * @return the book
+	 */
+	public static OpeningBook open(String file) {
+		Path path = Paths.get(file);
+		if (!Files.exists(path)) {
+			return new OpeningBook(null, 0);
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.capacity() < HEADER || buffer.getInt(0) != MAGIC
+					|| buffer.capacity() != HEADER + (long) buffer.getInt(4) * ENTRY) {
+				throw new IllegalStateException("Not an opening book: " + file);
+			}
+			return new OpeningBook(buffer, buffer.getInt(4));
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot read opening book " + file, e);
+		}
+	}
+
+	/**
+	 * Maps a book file into memory like open, but gives an empty book and a
+	 * 	warning when the file cannot be read or is not a book, so a corrupt
+	 * 	book costs only its moves.
+	 *
+	 * @param file book file
+	 * @return the book, empty if it could not be opened
+	 */
+	public static OpeningBook openOrEmpty(String file) {
+		try {
+			return open(file);
+		} catch (RuntimeException e) {
+			System.err.println("Playing without an opening book: " + e.getMessage());
+			return new OpeningBook(null, 0);
+		}
+	}
+
+	/**
+	 * Returns the book in DEFAULT_FILE, opened with openOrEmpty the first time
+	 * 	it is asked for and shared from then on.
+	 *
+	 * @return the default book
+	 */
+	public static OpeningBook getDefault() {
+		return Default.BOOK;
+	}
+
+	/** Holds the default book, so loading the class does not open the file. **/
+	private static class Default {
+		static final OpeningBook BOOK = openOrEmpty(DEFAULT_FILE);
+	}
+
+	/**
+	 * Looks up the best move for a board.
+	 *
+	 * @param bs board, must not be over
+	 * @param color color to move
+	 * @return packed legal move, or Move.NONE if the board is not in the book
+	 */
+	public int lookup(BoardState bs, char color) {
+		if (count == 0) {
+			return Move.NONE;
+		}
+		long mover = (color == 'W') ? bs.getWhite() : bs.getBlack();
+		long other = (color == 'W') ? bs.getBlack() : bs.getWhite();
+		int s = Symmetry.canonical(mover, other);
+		long key = Symmetry.key(s, mover, other);
+
+		int low = 0;
+		int high = count - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			long found = entries.getLong(HEADER + mid * ENTRY);
+			if (found < key) {
+				low = mid + 1;
+			} else if (found > key) {
+				high = mid - 1;
+			} else {
+				// A different board with the same key is possible, if unlikely
+				int move = Symmetry.transformMove(Symmetry.inverse(s), entries.getShort(HEADER + mid * ENTRY + 8));
+				if (bs.isLegal(Move.block(move), Move.pos(move), Move.rotBlock(move), Move.rotation(move))) {
+					return move;
+				}
+				return Move.NONE;
+			}
+		}
+		return Move.NONE;
+	}
+
+	/** Returns the number of boards in the book. **/
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Builds a book: searches every board up to the given number of moves into
+	 * 	the game, once per canonical form, and writes the best moves found.
+	 *
+	 * @param file file to write
+	 * @param plies moves into the game of the last boards searched
+	 * @param millis milliseconds to search each board for
+	 * @param threads threads to search with
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void build(String file, int plies, long millis, int threads) throws IOException {
+		Search white = new Search('W', 'B', threads, 22);
+		Search black = new Search('B', 'W', threads, 22);
+		Map<Long, Integer> book = new TreeMap<>();
+		int[] moves = new int[Move.COUNT];
+
+		List<BoardState> level = new ArrayList<>();
+		BoardState empty = new BoardState();
+		empty.setEvaluator(Evaluator.LINES);	// As PentagoGame scores boards
+		level.add(empty);
+		char color = 'W';
+		for (int ply = 0; ply <= plies; ply++) {
+			Search search = (color == 'W') ? white : black;
+			for (BoardState bs : level) {
+				long mover = (color == 'W') ? bs.getWhite() : bs.getBlack();
+				long other = (color == 'W') ? bs.getBlack() : bs.getWhite();
+				int s = Symmetry.canonical(mover, other);
+				int move = search.search(bs, true, millis);
+				book.put(Symmetry.key(s, mover, other), Symmetry.transformMove(s, move));
+			}
+			System.out.println("ply " + ply + ": " + level.size() + " boards");
+
+			if (ply < plies) {
+				List<BoardState> next = new ArrayList<>();
+				Set<Long> seen = new HashSet<>();
+				char after = (color == 'W') ? 'B' : 'W';
+				for (BoardState bs : level) {
+					int n = bs.generateUniqueMoves(moves, color);
+					for (int i = 0; i < n; i++) {
+						BoardState child = new BoardState(bs);
+						if (child.makeMove(moves[i], color)) {
+							continue;
+						}
+						long mover = (after == 'W') ? child.getWhite() : child.getBlack();
+						long other = (after == 'W') ? child.getBlack() : child.getWhite();
+						if (seen.add(Symmetry.key(Symmetry.canonical(mover, other), mover, other))) {
+							next.add(child);
+						}
+					}
+				}
+				level = next;
+				color = after;
+			}
+		}
+		white.shutdown();
+		black.shutdown();
+
+		try (OutputStream stream = Files.newOutputStream(Paths.get(file));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+			out.writeInt(MAGIC);
+			out.writeInt(book.size());
+			for (Map.Entry<Long, Integer> entry : book.entrySet()) {
+				out.writeLong(entry.getKey());
+				out.writeShort(entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Builds a book.
+	 *
+	 * @param args optional file, plies, milliseconds per board and threads
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		String file = (args.length > 0) ? args[0] : DEFAULT_FILE;
+		int plies = (args.length > 1) ? Integer.parseInt(args[1]) : 2;
+		long millis = (args.length > 2) ? Long.parseLong(args[2]) : 5000;
+		int threads = (args.length > 3) ? Integer.parseInt(args[3])
+				: Runtime.getRuntime().availableProcessors();
+		build(file, plies, millis, threads);
+	}
+}
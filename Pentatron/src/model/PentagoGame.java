@@ -1,11 +1,10 @@
 package model;
 
-import java.util.PriorityQueue;
-import java.util.Queue;
 import java.util.Scanner;
 
 /**
- * Runs a Pentago game.
+ * Runs a Pentago game, one move at a time: on the console, or driven by a
+ * 	program through pentasMove() and playersMove().
  * 
  * @author Trevor N. Lowe
  * @version 1
@@ -18,12 +17,25 @@ public class PentagoGame {
 	private char winner;
 	private Scanner console;
 	
-	// Pentatrons next move
-	private PriorityQueue<BoardState> bestMove;
-	private int pBlock;
-	private int pPos;
-	private int pRBlock;
-	private char pRot;
+	// Time allowed for each of Pentatrons moves, in milliseconds
+	public static final long DEFAULT_TIME_LIMIT = 2000;
+	private long timeLimit;
+	
+	// Heuristic Pentatron scores boards with
+	private static final Evaluator EVALUATOR = Evaluator.LINES;
+	
+	// Searches Pentatrons moves, alpha-beta unless the game is given another engine
+	public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+	private static final int TABLE_BITS = 20;
+	private Engine engine;
+	
+	// Whether Pentatron searches in the background while the player thinks
+	public static final boolean DEFAULT_PONDER = true;
+	private boolean ponder;
+	
+	// Color to move next, until the game is over
+	private char toMove;
+	private boolean over;
 	
 	/**
 	 * Creates a new instance of a Pentago game.
@@ -33,106 +45,140 @@ public class PentagoGame {
 	 * @param playerColor
 	 */
 	public PentagoGame(int starting, char pentaColor, char playerColor, Scanner console) {
+		this(starting, pentaColor, playerColor, console, DEFAULT_TIME_LIMIT, DEFAULT_THREADS);
+	}
+	
+	/**
+	 * Creates a new instance of a Pentago game.
+	 * 
+	 * @param starting
+	 * @param pentaColor
+	 * @param playerColor
+	 * @param timeLimit milliseconds Pentatron may think about each move
+	 * @param threads number of threads Pentatron thinks with
+	 */
+	public PentagoGame(int starting, char pentaColor, char playerColor, Scanner console,
+			long timeLimit, int threads) {
+		this(starting, pentaColor, playerColor, console, timeLimit,
+				new Search(pentaColor, playerColor, threads, TABLE_BITS), DEFAULT_PONDER);
+	}
+	
+	/**
+	 * Creates a new instance of a Pentago game and plays it on the console.
+	 * 
+	 * @param starting
+	 * @param pentaColor
+	 * @param playerColor
+	 * @param timeLimit milliseconds Pentatron may think about each move
+	 * @param engine searches Pentatron's moves, with pentaColor as the maximizing
+	 * 	color; shut down when the game ends
+	 * @param ponder true to keep searching while the player thinks
+	 */
+	public PentagoGame(int starting, char pentaColor, char playerColor, Scanner console,
+			long timeLimit, Engine engine, boolean ponder) {
+		this(starting, pentaColor, playerColor, timeLimit, engine, ponder);
+		this.console = console;
+		play();
+	}
+	
+	/**
+	 * Creates a new instance of a Pentago game without a console. The game is
+	 * 	played one move at a time by calling pentasMove() and playersMove()
+	 * 	in turn, so it can be driven by a program instead of a user.
+	 * 
+	 * @param starting 0 if Pentatron moves first
+	 * @param pentaColor
+	 * @param playerColor
+	 * @param timeLimit milliseconds Pentatron may think about each move
+	 * @param engine searches Pentatron's moves, with pentaColor as the maximizing
+	 * 	color; shut down when the game ends
+	 * @param ponder true to keep searching while the player thinks
+	 */
+	public PentagoGame(int starting, char pentaColor, char playerColor,
+			long timeLimit, Engine engine, boolean ponder) {
 		this.pentaColor = pentaColor;
 		this.playerColor = playerColor;
 		board = new BoardState();
+		board.setEvaluator(EVALUATOR);
 		winner = '.';
-		this.console = console;
-		bestMove = new PriorityQueue<BoardState>();
-		pBlock = 0;
-		pPos = 0;
-		pRBlock = 0;
-		pRot = 'l';
-		
-		if (starting == 0) { // Pentatron starts
-			pentasMove();
-		} else { // Player starts
-			playersMove();
-		}
+		this.timeLimit = timeLimit;
+		this.engine = engine;
+		// Exact results of late boards, used by the engine, one mapped file shared by all games
+		engine.setEndgameTable(EndgameTable.getDefault());
+		this.ponder = ponder;
+		toMove = (starting == 0) ? pentaColor : playerColor;
+		over = false;
 	}
 	
-	/** Method for pentas turn. **/
-	private void pentasMove() {
-		
-		System.out.println("Pentatron's turn");
-		
-		// Use minimax with several-move look-ahead and alpha-beta pruning
-		alphabeta(board, 3, Integer.MIN_VALUE, Integer.MAX_VALUE, true);
-		
-		// Place tile
-		board.placeTile(pBlock, pPos, pentaColor);
-		
-
-		if (board.isGameOver()) {
-			board.printBoard();
-			winner = board.getWinner();
-		} else {	// Rotate block
-			board.rotateBlock(pRBlock, pRot);
-			board.printBoard();
-			if (board.isGameOver()) {
-				winner = board.getWinner();
+	/** Plays the game on the console, one move after the other, until it is over. **/
+	private void play() {
+		while (!over) {
+			if (toMove == pentaColor) {
+				System.out.println("Pentatron's turn");
+				pentasMove();
 			} else {
-				playersMove();
+				playersMove(readMove());
 			}
+			board.printBoard();
 		}
 	}
 	
-	public int alphabeta(BoardState bs, int depth, int alpha, int beta, boolean maxPlayer) { 
-	    if  (depth == 0 || bs.isGameOver()) {
-	    	if (bs.isGameOver() && board.getWinner() == pentaColor) {
-	    		return 500;
-	    	} else if (bs.isGameOver() && board.getWinner() == playerColor) {
-	    		return -500;
-	    	} else if (bs.isGameOver()) {
-	    		return 0;
-	    	}
-	    	
-	        return bs.calculateHeuristic(pentaColor);
-	    }
-	    
-
-	    
-	    if  (maxPlayer) {	// Maximizing Player
-	    	
-	    	int min = Integer.MIN_VALUE;
-		    Queue<BoardState> children = bs.getChildren(pentaColor);
-	    	
-	        while (!children.isEmpty()) {
-	        	BoardState child = children.poll();
-	            min = Math.max(min, alphabeta(child, depth-1, alpha, beta, false));
-	            alpha = Math.max(alpha, min);
-	            
-	            if (beta <= alpha) {
-	                return min; // Pruned
-	            }
-	            
-	            bestMove.add(child);
-	        }
-	        
-	        return min;
-	        		
-	    } else {			// Minimizing Player
-	    	
-	    	int max = Integer.MAX_VALUE;
-		    Queue<BoardState> children = bs.getChildren(playerColor);
-	    	
-	        while (!children.isEmpty()) {
-	        	BoardState child = children.poll();
-	            max = Math.min(max, alphabeta(child, depth-1, alpha, beta, true)) ;
-	            beta = Math.min(beta, max);
-	            if (beta <= alpha) {
-	                return max; // Pruned
-	            }
-	            
-	            bestMove.add(child);
-	        }
-	        
-	        return max;
-	    }
+	/**
+	 * Plays Pentatron's move: looks it up in the opening book, else searches
+	 * 	with the game's engine until time runs out. If the game goes on and
+	 * 	pondering is on, the engine then searches the player's board until
+	 * 	they answer.
+	 * 
+	 * @return packed move played
+	 */
+	public int pentasMove() {
+		if (over || toMove != pentaColor) {
+			throw new IllegalStateException("Not Pentatron's turn");
+		}
+		// Opening moves looked up instead of searched, one mapped file shared by all games
+		int move = OpeningBook.getDefault().lookup(board, pentaColor);
+		if (move == Move.NONE) {
+			move = engine.search(board, true, timeLimit);
+		}
+		makeMove(move);
+		
+		if (!over && ponder) {
+			engine.ponder(board, false);
+		}
+		return move;
+	}
+	
+	/**
+	 * Plays the player's move.
+	 * 
+	 * @param move packed move
+	 * @return false if the move is not legal, and nothing was played
+	 */
+	public boolean playersMove(int move) {
+		if (over || toMove != playerColor) {
+			throw new IllegalStateException("Not the player's turn");
+		}
+		if (!board.isLegal(Move.block(move), Move.pos(move), Move.rotBlock(move), Move.rotation(move))) {
+			return false;
+		}
+		engine.stopPondering();
+		makeMove(move);
+		return true;
 	}
 	
-	/** Method for players turn. **/
-	private void playersMove() {
+	/** Plays a move for the color to move and passes the turn, or ends the game. **/
+	private void makeMove(int move) {
+		if (board.makeMove(move, toMove)) {
+			over = true;
+			winner = board.getWinner();
+			engine.shutdown();
+		} else {
+			toMove = (toMove == pentaColor) ? playerColor : pentaColor;
+		}
+	}
+	
+	/** Reads moves from the console until the player enters a legal one. **/
+	private int readMove() {
 		int block = 0;
 		int position = 0;
 		int rotBlock = 0;
@@ -153,25 +199,55 @@ public class PentagoGame {
 			if (!isLegal) {
 				System.out.println("Move Invalid, Please Re-Enter a Valid Move: ");
 			}
-		}	
+		}
+		return Move.encode(block, position, rotBlock, rot);
+	}
 	
-		// Place tile
-		board.placeTile(block, position, playerColor);
-
-		if (board.isGameOver()) {
-			board.printBoard();
-			winner = board.getWinner();
-		} else {	// Rotate block
-			board.rotateBlock(rotBlock, rot);
-			board.printBoard();
-			if (board.isGameOver()) {
-				winner = board.getWinner();
-			} else {
-				pentasMove();
-			}
+	/**
+	 * Returns true if it is Pentatron's turn.
+	 * 
+	 * @return true if Pentatron moves next
+	 */
+	public boolean isPentasTurn() {
+		return !over && toMove == pentaColor;
+	}
+	
+	/**
+	 * Returns true once the game is over.
+	 * 
+	 * @return true if game over
+	 */
+	public boolean isOver() {
+		return over;
+	}
+	
+	/**
+	 * Returns a copy of the board.
+	 * 
+	 * @return board
+	 */
+	public BoardState getBoard() {
+		return new BoardState(board);
+	}
+	
+	/**
+	 * Stops the game's engine, for a game left before it is over.
+	 */
+	public void shutdown() {
+		if (!over) {
+			engine.shutdown();
 		}
 	}
 	
+	/**
+	 * Sets the time Pentatron may think about its next moves.
+	 * 
+	 * @param timeLimit milliseconds per move
+	 */
+	public void setTimeLimit(long timeLimit) {
+		this.timeLimit = timeLimit;
+	}
+	
 	/**
 	 * Returns the winning color.
 	 * 
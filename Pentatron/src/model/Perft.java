@@ -0,0 +1,126 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts the boards reachable at a given depth (perft), to check the move
+ * 	generator against known counts and to time it. Moves are generated with
+ * 	generateMoves, so moves leading to the same board count once. A move that
+ * 	ends the game is not played further, and counts only at the last depth.
+ *
+ * 	Usage: Perft depth [threads] [move ...], with moves like "1/5 2r" played
+ * 	from the empty board by White then Black. Prints the count after every
+ * 	root move, the total and the boards counted per second.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class Perft {
+
+	private Perft() {
+	}
+
+	/**
+	 * Counts the boards reachable in exactly depth moves.
+	 *
+	 * @param bs board to count from, not over; restored when done
+	 * @param color color to move
+	 * @param depth number of moves
+	 * @return number of boards
+	 */
+	public static long perft(BoardState bs, char color, int depth) {
+		return perft(bs, color, depth, new int[depth + 1][Move.COUNT]);
+	}
+
+	/** Counts with one reused move array per depth. **/
+	private static long perft(BoardState bs, char color, int depth, int[][] moveLists) {
+		if (depth == 0) {
+			return 1;
+		}
+		int[] moves = moveLists[depth];
+		int count = bs.generateMoves(moves, color);
+		if (depth == 1) {
+			return count;
+		}
+
+		char other = (color == 'W') ? 'B' : 'W';
+		long sum = 0;
+		for (int i = 0; i < count; i++) {
+			if (!bs.makeMove(moves[i], color)) {
+				sum += perft(bs, other, depth - 1, moveLists);
+			}
+			bs.unmakeMove();
+		}
+		return sum;
+	}
+
+	/**
+	 * Counts the boards reachable in exactly depth moves after each move,
+	 * 	counting after different moves on different threads.
+	 *
+	 * @param bs board to count from, not over; not changed
+	 * @param color color to move
+	 * @param depth number of moves, at least 1
+	 * @param moves array of at least Move.COUNT entries, filled with the moves
+	 * @param threads number of threads to count with
+	 * @return count after each move, in the order of moves
+	 */
+	public static long[] divide(BoardState bs, char color, int depth, int[] moves, int threads) {
+		int count = bs.generateMoves(moves, color);
+		char other = (color == 'W') ? 'B' : 'W';
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<Long>> counts = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			BoardState child = new BoardState(bs);
+			boolean over = child.makeMove(moves[i], color);
+			counts.add(pool.submit(() -> (depth == 1) ? 1L : over ? 0L : perft(child, other, depth - 1)));
+		}
+
+		long[] result = new long[count];
+		try {
+			for (int i = 0; i < count; i++) {
+				result[i] = counts.get(i).get();
+			}
+		} catch (Exception e) {
+			throw new IllegalStateException("Perft thread failed", e);
+		} finally {
+			pool.shutdown();
+		}
+		return result;
+	}
+
+	/**
+	 * Runs perft from the command line.
+	 *
+	 * @param args depth, optional thread count, then optional moves
+	 */
+	public static void main(String[] args) {
+		int depth = Integer.parseInt(args[0]);
+		int threads = (args.length > 1) ? Integer.parseInt(args[1])
+				: Runtime.getRuntime().availableProcessors();
+
+		BoardState board = new BoardState();
+		char color = 'W';
+		for (int i = 2; i < args.length; i++) {
+			board.makeMove(Move.parse(args[i]), color);
+			color = (color == 'W') ? 'B' : 'W';
+		}
+
+		long start = System.nanoTime();
+		int[] moves = new int[Move.COUNT];
+		long[] counts = divide(board, color, depth, moves, threads);
+		long nanos = System.nanoTime() - start;
+
+		long total = 0;
+		for (int i = 0; i < counts.length; i++) {
+			System.out.println(Move.toString(moves[i]) + ": " + counts[i]);
+			total += counts[i];
+		}
+		System.out.println("moves " + counts.length + ", boards " + total);
+		System.out.println((total * 1000000000L / Math.max(nanos, 1)) + " boards/sec");
+	}
+}
@@ -0,0 +1,314 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Solves a board exactly with depth-first proof-number search (df-pn). Each
+ * 	board has a proof number, how many boards at least must still be proven to
+ * 	prove it, and a disproof number, the same to disprove it. A board of the
+ * 	player to move is proven by one proven move, but needs every move
+ * 	disproven; a board of the opponent is the other way around. The search
+ * 	always goes into the move that most cheaply helps, and only comes back
+ * 	when the numbers of the board pass thresholds set by its parent. Works
+ * 	best late in the game, when the boards left can be searched to the end.
+ *
+ * 	Since a board can be won, drawn or lost, solve() first tries to prove a
+ * 	win, then that the player to move does not lose. The numbers are kept in a
+ * 	fixed size table keyed by the Zobrist hash, so boards reached by different
+ * 	move orders are searched once. When the table is full, the entry that took
+ * 	the least work to find is replaced.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class ProofNumberSearch {
+
+	/** Results of solve(), ordered from worst to best for the player to move. **/
+	public static final int UNKNOWN = -1;
+	public static final int LOSS = 0;
+	public static final int DRAW = 1;
+	public static final int WIN = 2;
+
+	/** Proof or disproof number of a board that cannot be proven or disproven. **/
+	private static final int INFINITY = 100000000;
+
+	// The table: proof and disproof numbers by hash, and the boards searched to find them
+	private final int mask;
+	private final long[] keys;
+	private final int[] proofs;
+	private final int[] disproofs;
+	private final int[] work;
+
+	// Moves of every board on the current line, with the hashes and numbers they lead to
+	private final int[][] moves;
+	private final long[][] childKeys;
+	private final int[][] childProofs;
+	private final int[][] childDisproofs;
+
+	private char color;
+	private int goal;
+	private long nodes;
+	private long deadline;
+	private volatile boolean stopped;
+	private boolean aborted;
+	private int bestMove;
+
+	// Numbers and move count of the board the last mid() call searched
+	private int proof;
+	private int disproof;
+	private int childCount;
+
+	/**
+	 * Creates a solver.
+	 *
+	 * @param tableBits the table holds 2^tableBits boards
+	 */
+	public ProofNumberSearch(int tableBits) {
+		mask = (1 << tableBits) - 1;
+		keys = new long[1 << tableBits];
+		proofs = new int[1 << tableBits];
+		disproofs = new int[1 << tableBits];
+		work = new int[1 << tableBits];
+		moves = new int[AlphaBeta.MAX_DEPTH + 1][Move.COUNT];
+		childKeys = new long[AlphaBeta.MAX_DEPTH + 1][Move.COUNT];
+		childProofs = new int[AlphaBeta.MAX_DEPTH + 1][Move.COUNT];
+		childDisproofs = new int[AlphaBeta.MAX_DEPTH + 1][Move.COUNT];
+		deadline = Long.MAX_VALUE;
+		bestMove = Move.NONE;
+	}
+
+	/**
+	 * Solves a board.
+	 *
+	 * @param bs board to solve, must not be over; restored when done
+	 * @param color color to move
+	 * @return WIN, DRAW or LOSS for color, or UNKNOWN if the deadline passed
+	 * 	or the solver was stopped first
+	 */
+	public int solve(BoardState bs, char color) {
+		this.color = color;
+		nodes = 0;
+		aborted = false;
+		bestMove = Move.NONE;
+
+		int result = prove(bs, WIN);
+		if (result == LOSS) {
+			result = prove(bs, DRAW);
+		}
+		if (result == LOSS) {
+			bestMove = longestResistance(bs, childCount);
+		}
+		return result;
+	}
+
+	/**
+	 * Proves or disproves that the color to move reaches at least the goal.
+	 *
+	 * @return goal if proven, LOSS if disproven, UNKNOWN otherwise
+	 */
+	private int prove(BoardState bs, int goal) {
+		this.goal = goal;
+		Arrays.fill(work, 0);
+
+		mid(bs, 0, color, INFINITY, INFINITY);
+		if (aborted) {
+			return UNKNOWN;
+		}
+
+		int count = childCount;
+		for (int i = 0; i < count; i++) {
+			if (childProofs[0][i] == 0) {
+				bestMove = moves[0][i];
+				return goal;
+			}
+		}
+		return LOSS;
+	}
+
+	/**
+	 * Returns the move of a lost board that holds out longest: one that does
+	 * 	not lose on the spot, then one after which the opponent has no winning
+	 * 	move, then the one whose loss took the most boards to prove. Called
+	 * 	with the moves of the board still in moves[0].
+	 */
+	private int longestResistance(BoardState bs, int count) {
+		char other = (color == 'W') ? 'B' : 'W';
+		int[] list = moves[0];
+		int[] replies = moves[1];
+		int best = list[0];
+		long bestRank = -1;
+		for (int i = 0; i < count; i++) {
+			long rank = 0;
+			if (!bs.makeMove(list[i], color)) {
+				boolean answered = false;
+				int replyCount = bs.generateMoves(replies, other);
+				for (int j = 0; j < replyCount && !answered; j++) {
+					answered = bs.makeMove(replies[j], other) && bs.getWinner() == other;
+					bs.unmakeMove();
+				}
+				int slot = lookup(bs.getHash());
+				rank = ((answered ? 1L : 2L) << 32) | ((slot < 0) ? 0 : work[slot]);
+			}
+			bs.unmakeMove();
+			if (rank > bestRank) {
+				best = list[i];
+				bestRank = rank;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Searches a board until its proof number reaches maxProof or its disproof
+	 * 	number reaches maxDisproof, then stores its numbers in the table and
+	 * 	leaves them in proof and disproof.
+	 */
+	private void mid(BoardState bs, int ply, char toMove, int maxProof, int maxDisproof) {
+		boolean ownTurn = ply % 2 == 0;
+		char other = (toMove == 'W') ? 'B' : 'W';
+		long key = bs.getHash();
+		long start = nodes++;
+		if ((nodes & 1023) == 0 && (stopped || System.nanoTime() > deadline)) {
+			aborted = true;
+			return;
+		}
+
+		int[] list = moves[ply];
+		long[] keyList = childKeys[ply];
+		int[] proofList = childProofs[ply];
+		int[] disproofList = childDisproofs[ply];
+
+		// Look every move up; a finished game that decides the board ends the search at once
+		int count = bs.generateMoves(list, toMove);
+		for (int i = 0; i < count; i++) {
+			boolean over = bs.makeMove(list[i], toMove);
+			char winner = bs.getWinner();
+			keyList[i] = bs.getHash();
+			bs.unmakeMove();
+
+			if (over) {
+				int outcome = (winner == color) ? WIN : (winner == '.') ? DRAW : LOSS;
+				proofList[i] = (outcome >= goal) ? 0 : INFINITY;
+				disproofList[i] = (outcome >= goal) ? INFINITY : 0;
+				if ((ownTurn ? proofList[i] : disproofList[i]) == 0) {
+					list[0] = list[i];
+					proofList[0] = proofList[i];
+					disproofList[0] = disproofList[i];
+					count = 1;
+					break;
+				}
+			} else {
+				int slot = lookup(keyList[i]);
+				proofList[i] = (slot < 0) ? 1 : proofs[slot];
+				disproofList[i] = (slot < 0) ? 1 : disproofs[slot];
+			}
+		}
+
+		while (true) {
+			// Own turn: one proven move proves the board, every move must be disproven
+			int min = INFINITY;
+			int second = INFINITY;
+			int sum = 0;
+			int best = 0;
+			for (int i = 0; i < count; i++) {
+				int small = ownTurn ? proofList[i] : disproofList[i];
+				int large = ownTurn ? disproofList[i] : proofList[i];
+				if (small < min) {
+					second = min;
+					min = small;
+					best = i;
+				} else if (small < second) {
+					second = small;
+				}
+				sum = Math.min(INFINITY, sum + large);
+			}
+			proof = ownTurn ? min : sum;
+			disproof = ownTurn ? sum : min;
+
+			if (proof >= maxProof || disproof >= maxDisproof || aborted) {
+				break;
+			}
+
+			// Search the best move until it is no longer the best by a quarter, or
+			// 	the board passes its own thresholds
+			int childProof;
+			int childDisproof;
+			if (ownTurn) {
+				childProof = Math.min(maxProof, second + second / 4 + 1);
+				childDisproof = maxDisproof - disproof + disproofList[best];
+			} else {
+				childProof = maxProof - proof + proofList[best];
+				childDisproof = Math.min(maxDisproof, second + second / 4 + 1);
+			}
+			bs.makeMove(list[best], toMove);
+			mid(bs, ply + 1, other, childProof, childDisproof);
+			bs.unmakeMove();
+			proofList[best] = proof;
+			disproofList[best] = disproof;
+		}
+
+		if (!aborted) {
+			store(key, proof, disproof, nodes - start);
+		}
+		childCount = count;
+	}
+
+	/** Returns the table slot holding the board, or -1 if it is not in the table. **/
+	private int lookup(long key) {
+		int slot = (int) key & mask;
+		return (work[slot] != 0 && keys[slot] == key) ? slot : -1;
+	}
+
+	/** Stores the numbers of a board unless its slot holds a board that took more work. **/
+	private void store(long key, int proof, int disproof, long boards) {
+		int slot = (int) key & mask;
+		int size = (int) Math.min(Integer.MAX_VALUE, boards);
+		if (keys[slot] == key || size >= work[slot]) {
+			keys[slot] = key;
+			proofs[slot] = proof;
+			disproofs[slot] = disproof;
+			work[slot] = Math.max(size, 1);
+		}
+	}
+
+	/**
+	 * Sets the time after which solve() gives up.
+	 *
+	 * @param deadline System.nanoTime() value, Long.MAX_VALUE for none
+	 */
+	public void setDeadline(long deadline) {
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Makes a solve() running on another thread give up soon, or the next one
+	 * 	if none is running, until resume() is called.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * Allows solving again after stop(). Called by the caller before it starts
+	 * 	a solve(), not by solve() itself, so a stop() that comes in between is
+	 * 	not lost.
+	 */
+	public void resume() {
+		stopped = false;
+	}
+
+	/**
+	 * Returns the move that reaches the result of the last solve(): the winning
+	 * 	or drawing move, or the move that holds out longest if the board is lost.
+	 *
+	 * @return packed move, or Move.NONE if the board was not solved
+	 */
+	public int getBestMove() {
+		return bestMove;
+	}
+
+	/** Returns the number of boards the last solve() searched. **/
+	public long getNodes() {
+		return nodes;
+	}
+}
@@ -0,0 +1,609 @@
+package model;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Picks a move by iterative deepening on one or more threads (Lazy SMP).
+ * 	The main thread searches depth 1, 2, 3... until the time limit passes.
+ * 	Helper threads search the same board at the same time, half of them one
+ * 	move deeper, and share the transposition table with the main thread, so
+ * 	the main thread finds more of its tree already searched.
+ *
+ * 	From depth 2 on, the main thread first searches a narrow aspiration window
+ * 	around the score of the previous depth, and only widens it if the score
+ * 	falls outside.
+ *
+ * 	Before searching, a threat search looks for a forced win much deeper than
+ * 	the full width search can. Late in the game, a proof-number search then
+ * 	tries to solve the board exactly, and its move is played if it proves a
+ * 	win or a draw. After searching, the chosen move is checked the
+ * 	same way for a forced win of the other player, and replaced by a move that
+ * 	avoids it if there is one.
+ *
+ * 	While the other player thinks, ponder() searches their board in the
+ * 	background, filling the transposition table with the boards the next
+ * 	search will meet.
+ *
+ * 	A search is made for a whole game and keeps what it learned from move to
+ * 	move: the transposition table, the killer moves and history scores of
+ * 	every thread, and the best line of the last search. If the game followed
+ * 	that line, the rest of it is tried first again.
+ *
+ * 	Every thread counts what it does in its own AlphaBeta, and the counts are
+ * 	summed once the threads stop; getStats() returns them, and each search is
+ * 	recorded as a pentatron.Search event for Java Flight Recorder.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class Search implements Engine {
+
+	private final char maxColor;
+	private final char minColor;
+	private final TranspositionTable table;
+	private final AlphaBeta main;
+	private final AlphaBeta[] helpers;
+	private final ExecutorService pool;
+
+	// Reused from search to search, so searching does not use more memory over time
+	private final BoardState mainBoard;
+	private final BoardState[] helperBoards;
+	private final Runnable[] helperTasks;
+	private final Future<?>[] running;
+	private int searchEmpty;
+	private boolean searchMaxPlayer;
+
+	// Limits set from outside: the deepest depth to search, and a stop from another thread
+	private int depthLimit;
+	private volatile boolean stopRequested;
+
+	/** Half width of the aspiration window around the previous score. **/
+	private static final int ASPIRATION = 8;
+
+	/** Attacker moves and moves played at most per threat search. **/
+	private static final int THREAT_DEPTH = 3;
+	private static final long THREAT_NODES = 300000;
+
+	/** Milliseconds the threat searches before and after a depth limited search take at most. **/
+	private static final long THREAT_LIMIT = 1000;
+	private final ThreatSearch threats;
+	private final int[] rootMoves;
+	private final int[] rootOrder;
+	private final int[] scoredMoves;
+	private final int[] scoredScores;
+
+	/** Part of the time limit, as 1/CHECK_SHARE, kept for checking the chosen move for a forced loss. **/
+	private static final int CHECK_SHARE = 8;
+
+	/** Empty squares at most to try solving the board at; the solver's table holds 2^SOLVER_BITS boards. **/
+	private static final int SOLVER_EMPTY = 12;
+	private static final int SOLVER_BITS = 19;
+	private volatile ProofNumberSearch solver;
+
+	/** Milliseconds a background search runs at most if never stopped. **/
+	private static final long PONDER_LIMIT = 600000;
+	private final BoardState ponderBoard;
+	private ExecutorService ponderPool;
+	private Future<?> pondering;
+
+	// Result of the last search, its best line starting from pvBoard
+	private int bestMove;
+	private final int[] pv;
+	private int pvLength;
+	private final BoardState pvBoard;
+	private boolean pvMaxPlayer;
+	private int score;
+	private int depth;
+	private long nodes;
+	private long leafEvaluations;
+	private long cutoffs;
+	private long firstMoveCutoffs;
+	private long tableProbes;
+	private long tableHits;
+	private double branchingFactor;
+	private long nanos;
+
+	/**
+	 * Creates a search.
+	 *
+	 * @param maxColor color of the maximizing player
+	 * @param minColor color of the minimizing player
+	 * @param threads number of threads to search with, at least 1
+	 * @param tableBits the transposition table holds 2^tableBits entries
+	 */
+	public Search(char maxColor, char minColor, int threads, int tableBits) {
+		this.maxColor = maxColor;
+		this.minColor = minColor;
+		table = new TranspositionTable(tableBits);
+		main = new AlphaBeta(maxColor, minColor, table);
+		helpers = new AlphaBeta[threads - 1];
+		mainBoard = new BoardState();
+		helperBoards = new BoardState[threads - 1];
+		helperTasks = new Runnable[threads - 1];
+		running = new Future<?>[threads - 1];
+		for (int i = 0; i < helpers.length; i++) {
+			helpers[i] = new AlphaBeta(maxColor, minColor, table);
+			helperBoards[i] = new BoardState();
+			helperTasks[i] = helperTask(helpers[i], helperBoards[i], 1 + (i & 1));
+		}
+		pool = (threads > 1) ? Executors.newFixedThreadPool(threads - 1, r -> {
+			Thread t = new Thread(r, "pentatron-search");
+			t.setDaemon(true);
+			return t;
+		}) : null;
+		bestMove = Move.NONE;
+		pv = new int[AlphaBeta.MAX_DEPTH + 1];
+		pvLength = 0;
+		depthLimit = AlphaBeta.MAX_DEPTH;
+		threats = new ThreatSearch(THREAT_NODES);
+		rootMoves = new int[Move.COUNT];
+		rootOrder = new int[Move.COUNT];
+		scoredMoves = new int[Move.COUNT];
+		scoredScores = new int[Move.COUNT];
+		ponderBoard = new BoardState();
+		pvBoard = new BoardState();
+	}
+
+	/**
+	 * Creates the work of a helper thread: iterative deepening from the given
+	 * 	depth on its own copy of the board, until stopped.
+	 */
+	private Runnable helperTask(AlphaBeta helper, BoardState bs, int first) {
+		return () -> {
+			for (int d = first; d <= searchEmpty && d <= AlphaBeta.MAX_DEPTH; d++) {
+				helper.search(bs, d, searchMaxPlayer);
+				if (helper.isAborted()) {
+					break;
+				}
+			}
+		};
+	}
+
+	/**
+	 * Searches one move deeper at a time until the time limit passes, then returns
+	 * 	the best move of the deepest search that finished. A search still running
+	 * 	at the time limit is aborted. The first search always finishes, so there
+	 * 	is always a move. The last part of the time limit is kept for checking
+	 * 	the move for a forced loss, so the whole search ends by the time limit,
+	 * 	give or take the depth 1 search and a few hundred boards.
+	 *
+	 * @param board board to search, must not be over; not changed
+	 * @param maxPlayer true if the maximizing color is to move
+	 * @param timeLimit milliseconds to search for
+	 * @return best packed move
+	 */
+	public int search(BoardState board, boolean maxPlayer, long timeLimit) {
+		stopPondering();
+		stopRequested = false;
+		SearchEvent event = new SearchEvent();
+		event.begin();
+		long start = System.nanoTime();
+		think(board, maxPlayer, timeLimit, start);
+		nanos = System.nanoTime() - start;
+
+		event.end();
+		if (event.shouldCommit()) {
+			event.record(getStats(), bestMove);
+			event.commit();
+		}
+		return bestMove;
+	}
+
+	/** Finds the best move of a search started at the given System.nanoTime() value. **/
+	private void think(BoardState board, boolean maxPlayer, long timeLimit, long start) {
+		carryOver(board, maxPlayer);
+		int empty = board.getEmptyCount();
+		char color = maxPlayer ? maxColor : minColor;
+		char other = maxPlayer ? minColor : maxColor;
+		BoardState bs = mainBoard;
+		bs.copy(board);
+		long end = start + timeLimit * 1000000L;
+
+		// A forced win by threats needs no further search
+		threats.setDeadline(start + Math.min(timeLimit / 4, THREAT_LIMIT) * 1000000L);
+		int win = threats.findForcedWin(bs, color, THREAT_DEPTH);
+		if (win != Move.NONE) {
+			bestMove = win;
+			pv[0] = win;
+			pvLength = 1;
+			score = maxPlayer ? AlphaBeta.WIN : -AlphaBeta.WIN;
+			depth = 0;
+			clearCounts(threats.getNodes());
+			return;
+		}
+
+		// Late in the game, play exactly if the board can be solved in half the time;
+		// 	not when a depth limit is set, which the solver would not keep to
+		boolean limited = depthLimit < AlphaBeta.MAX_DEPTH;
+		if (empty <= SOLVER_EMPTY && !stopRequested && !limited) {
+			if (solver == null) {
+				solver = new ProofNumberSearch(SOLVER_BITS);
+			}
+			// Resumed here, so a stop from now on is kept, like the main searcher's
+			solver.resume();
+			if (stopRequested) {
+				solver.stop();
+			}
+			solver.setDeadline(start + timeLimit * 500000L);
+			int result = solver.solve(bs, color);
+			if (result == ProofNumberSearch.WIN || result == ProofNumberSearch.DRAW) {
+				bestMove = solver.getBestMove();
+				pv[0] = bestMove;
+				pvLength = 1;
+				score = (result == ProofNumberSearch.DRAW) ? 0 : maxPlayer ? AlphaBeta.WIN : -AlphaBeta.WIN;
+				depth = empty;
+				clearCounts(threats.getNodes() + solver.getNodes());
+				return;
+			}
+		}
+
+		main.resume();
+		if (stopRequested) {
+			main.stop();
+		}
+		deepen(board, maxPlayer, end - timeLimit * 1000000L / CHECK_SHARE, depthLimit);
+
+		if (score > -AlphaBeta.WIN && score < AlphaBeta.WIN) {
+			long checkEnd = limited ? Math.min(end, System.nanoTime() + THREAT_LIMIT * 1000000L) : end;
+			threats.setDeadline(checkEnd);
+			int safe = avoidForcedLoss(bs, maxPlayer, color, other, checkEnd);
+			if (safe != bestMove) {
+				bestMove = safe;
+				pv[0] = safe;
+				pvLength = 1;
+			}
+		}
+	}
+
+	/** Counts the boards of a search that did not get to the full width search. **/
+	private void clearCounts(long boards) {
+		nodes = boards;
+		leafEvaluations = 0;
+		cutoffs = 0;
+		firstMoveCutoffs = 0;
+		tableProbes = 0;
+		tableHits = 0;
+		branchingFactor = 0;
+	}
+
+	/**
+	 * Searches one move deeper at a time on all threads until the deadline
+	 * 	passes, the depth limit is reached or the search is stopped, keeping the
+	 * 	result of the deepest search that finished. The main searcher must be
+	 * 	resumed first.
+	 */
+	private void deepen(BoardState board, boolean maxPlayer, long deadline, int maxDepth) {
+		table.newSearch();
+		main.resetNodes();
+		main.setDeadline(deadline);
+
+		BoardState bs = mainBoard;
+		bs.copy(board);
+		int empty = board.getEmptyCount();
+		searchEmpty = empty;
+		searchMaxPlayer = maxPlayer;
+		for (int i = 0; i < helpers.length; i++) {
+			helperBoards[i].copy(board);
+			helpers[i].resume();
+			helpers[i].resetNodes();
+			running[i] = pool.submit(helperTasks[i]);
+		}
+
+		bestMove = Move.NONE;
+		pvLength = 0;
+		depth = 0;
+		for (int d = 1; d <= empty && d <= maxDepth; d++) {
+			int alpha = Integer.MIN_VALUE;
+			int beta = Integer.MAX_VALUE;
+			if (d > 1) {
+				alpha = score - ASPIRATION;
+				beta = score + ASPIRATION;
+			}
+			
+			int s = main.search(bs, d, maxPlayer, alpha, beta);
+			while (!main.isAborted() && ((s <= alpha && alpha != Integer.MIN_VALUE)
+					|| (s >= beta && beta != Integer.MAX_VALUE))) {
+				// Outside the window, search again with the failing side opened up
+				if (s <= alpha) {
+					alpha = Integer.MIN_VALUE;
+				} else {
+					beta = Integer.MAX_VALUE;
+				}
+				s = main.search(bs, d, maxPlayer, alpha, beta);
+			}
+			if (main.isAborted()) {
+				break;
+			}
+
+			bestMove = main.getRootMove();
+			pvLength = main.getPrincipalVariation(pv);
+			score = s;
+			depth = d;
+			if (s >= AlphaBeta.WIN || s <= -AlphaBeta.WIN || System.nanoTime() > deadline
+					|| stopRequested) {
+				break;	// Game decided, out of time or stopped
+			}
+		}
+
+		// Moves per board a plain tree of the same depth and size would have
+		branchingFactor = (depth == 0) ? 0 : Math.pow(main.getNodes(), 1.0 / depth);
+		nodes = main.getNodes();
+		leafEvaluations = main.getLeafEvaluations();
+		cutoffs = main.getCutoffs();
+		firstMoveCutoffs = main.getFirstMoveCutoffs();
+		tableProbes = main.getTableProbes();
+		tableHits = main.getTableHits();
+		for (int i = 0; i < helpers.length; i++) {
+			helpers[i].stop();
+			try {
+				running[i].get();
+			} catch (Exception e) {
+				throw new IllegalStateException("Search thread failed", e);
+			}
+			nodes += helpers[i].getNodes();
+			leafEvaluations += helpers[i].getLeafEvaluations();
+			cutoffs += helpers[i].getCutoffs();
+			firstMoveCutoffs += helpers[i].getFirstMoveCutoffs();
+			tableProbes += helpers[i].getTableProbes();
+			tableHits += helpers[i].getTableHits();
+		}
+	}
+
+	/**
+	 * Prepares the searchers for the board of the next search: moves their
+	 * 	killer moves along by the moves played since the last search, and
+	 * 	follows the last best line to the board. If it gets there, the rest of
+	 * 	the line is stored in the transposition table as best moves for boards
+	 * 	that lost their entries, so the first iterations search it first.
+	 */
+	private void carryOver(BoardState board, boolean maxPlayer) {
+		int played = Math.max(0, pvBoard.getEmptyCount() - board.getEmptyCount());
+		main.advance(played);
+		for (AlphaBeta helper : helpers) {
+			helper.advance(played);
+		}
+
+		BoardState bs = mainBoard;
+		bs.copy(pvBoard);
+		char color = pvMaxPlayer ? maxColor : minColor;
+		boolean over = false;
+		int i = 0;
+		for (; i < pvLength && !over && !sameBoard(bs, board); i++) {
+			over = bs.makeMove(pv[i], color);
+			color = (color == maxColor) ? minColor : maxColor;
+		}
+		if (sameBoard(bs, board) && !over) {
+			for (; i < pvLength && !over; i++) {
+				int symmetry = bs.canonicalSymmetry();
+				long key = bs.getHash(symmetry) ^ (color == 'B' ? BoardState.BLACK_TO_MOVE : 0L);
+				if (table.probe(key) == 0) {
+					table.store(key, 0, TranspositionTable.EXACT, 0, Symmetry.transformMove(symmetry, pv[i]));
+				}
+				over = bs.makeMove(pv[i], color);
+				color = (color == maxColor) ? minColor : maxColor;
+			}
+		}
+
+		pvBoard.copy(board);
+		pvMaxPlayer = maxPlayer;
+		pvLength = 0;
+	}
+
+	/** Returns true if both boards hold the same tiles. **/
+	private static boolean sameBoard(BoardState a, BoardState b) {
+		return a.getWhite() == b.getWhite() && a.getBlack() == b.getBlack();
+	}
+
+	/**
+	 * Returns the best move if the other player has no forced win by threats
+	 * 	after it, otherwise the root move with the best score in the last
+	 * 	finished search that avoids one. Keeps the best move if no move avoids
+	 * 	a forced win, or none is found before the deadline.
+	 */
+	private int avoidForcedLoss(BoardState bs, boolean maxPlayer, char color, char other, long deadline) {
+		if (!losesByForce(bs, bestMove, color, other)) {
+			return bestMove;
+		}
+
+		// Moves the search tried first, best score first, then the untried ones
+		int count = bs.generateUniqueMoves(rootMoves, color);
+		int scored = main.getRootScores(scoredMoves, scoredScores);
+		for (int i = 0; i < count; i++) {
+			rootOrder[i] = Integer.MIN_VALUE;
+			for (int j = 0; j < scored; j++) {
+				if (scoredMoves[j] == rootMoves[i]) {
+					rootOrder[i] = maxPlayer ? scoredScores[j] : -scoredScores[j];
+				}
+			}
+		}
+		for (int i = 0; i < count && !stopRequested; i++) {
+			int best = i;
+			for (int j = i + 1; j < count; j++) {
+				if (rootOrder[j] > rootOrder[best]) {
+					best = j;
+				}
+			}
+			int move = rootMoves[best];
+			rootMoves[best] = rootMoves[i];
+			rootOrder[best] = rootOrder[i];
+			if (move != bestMove && !losesByForce(bs, move, color, other)) {
+				return move;
+			} else if (System.nanoTime() > deadline) {
+				break;
+			}
+		}
+		return bestMove;
+	}
+
+	/** Returns true if the other player has a forced win by threats after the move. **/
+	private boolean losesByForce(BoardState bs, int move, char color, char other) {
+		boolean loses;
+		if (bs.makeMove(move, color)) {
+			loses = bs.getWinner() == other;
+		} else {
+			loses = threats.findForcedWin(bs, other, THREAT_DEPTH) != Move.NONE;
+			nodes += threats.getNodes();
+		}
+		bs.unmakeMove();
+		return loses;
+	}
+
+	/**
+	 * Sets the table of exact results the searchers use at their leaves.
+	 *
+	 * @param endgame endgame table
+	 */
+	public void setEndgameTable(EndgameTable endgame) {
+		main.setEndgameTable(endgame);
+		for (AlphaBeta helper : helpers) {
+			helper.setEndgameTable(endgame);
+		}
+	}
+
+	/**
+	 * Starts searching the board in the background, to fill the transposition
+	 * 	table while the player to move thinks. Runs until stopPondering() or
+	 * 	the next search() is called.
+	 *
+	 * @param board board to search, must not be over; copied, so it may change
+	 * @param maxPlayer true if the maximizing color is to move
+	 */
+	public void ponder(BoardState board, boolean maxPlayer) {
+		stopPondering();
+		if (ponderPool == null) {
+			ponderPool = Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r, "pentatron-ponder");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		ponderBoard.copy(board);
+		carryOver(board, maxPlayer);
+		main.resume();	// Here, so a stop right after this call is not lost
+		long deadline = System.nanoTime() + PONDER_LIMIT * 1000000L;
+		pondering = ponderPool.submit(() -> deepen(ponderBoard, maxPlayer, deadline, AlphaBeta.MAX_DEPTH));
+	}
+
+	/** Stops the background search, if one is running, and waits for it to end. **/
+	public void stopPondering() {
+		if (pondering == null) {
+			return;
+		}
+		main.stop();
+		try {
+			pondering.get();
+		} catch (Exception e) {
+			throw new IllegalStateException("Ponder thread failed", e);
+		}
+		pondering = null;
+	}
+
+	/**
+	 * Makes a search running on another thread return as soon as it has a
+	 * 	move: the deepest search that finished, at least depth 1. Only stops a
+	 * 	search that has started.
+	 */
+	public void stop() {
+		stopRequested = true;
+		main.stop();
+		ProofNumberSearch s = solver;
+		if (s != null) {
+			s.stop();
+		}
+	}
+
+	/**
+	 * Sets the deepest depth searches go to. Searches still end at the time
+	 * 	limit if it comes first. While a limit is set, boards are not solved
+	 * 	to the end, and the threat searches take THREAT_LIMIT at most, so a
+	 * 	search without a useful time limit still ends soon after the depth.
+	 *
+	 * @param depth deepest depth, from 1 to AlphaBeta.MAX_DEPTH
+	 */
+	public void setDepthLimit(int depth) {
+		depthLimit = Math.max(1, Math.min(depth, AlphaBeta.MAX_DEPTH));
+	}
+
+	/** Stops the helper threads for good. **/
+	public void shutdown() {
+		stopPondering();
+		if (pool != null) {
+			pool.shutdownNow();
+		}
+		if (ponderPool != null) {
+			ponderPool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Copies the best line of moves found by the last search, starting with the
+	 * 	returned move.
+	 *
+	 * @param moves array of at least AlphaBeta.MAX_DEPTH + 1 entries
+	 * @return number of moves copied
+	 */
+	public int getPrincipalVariation(int[] moves) {
+		System.arraycopy(pv, 0, moves, 0, pvLength);
+		return pvLength;
+	}
+
+	/** Returns the score of the last search, for the maximizing color. **/
+	public int getScore() {
+		return score;
+	}
+
+	/** Returns the deepest depth the last search finished. **/
+	public int getDepth() {
+		return depth;
+	}
+
+	/** Returns the number of boards all threads visited in the last search. **/
+	public long getNodes() {
+		return nodes;
+	}
+
+	/** Returns the boards visited per second in the last search. **/
+	public long getNodesPerSecond() {
+		return nanos == 0 ? 0 : nodes * 1000000000L / nanos;
+	}
+
+	/**
+	 * Returns how often the first move tried pruned, out of all prunes in the
+	 * 	last search. Close to 1 means moves are well ordered.
+	 * 
+	 * @return rate between 0 and 1
+	 */
+	public double getFirstMoveCutoffRate() {
+		return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+	}
+
+	/**
+	 * Returns what the last search did: boards visited and scored, prunes,
+	 * 	transposition table hits, depth, branching factor and time. Searches
+	 * 	also record the same as a pentatron.Search event for Java Flight
+	 * 	Recorder.
+	 *
+	 * @return counts of the last search, summed over all threads
+	 */
+	public SearchStats getStats() {
+		return new SearchStats(nodes, leafEvaluations, cutoffs, firstMoveCutoffs, tableProbes,
+				tableHits, depth, branchingFactor, nanos, getThreads(), score);
+	}
+
+	/** Returns the number of threads searching. **/
+	public int getThreads() {
+		return helpers.length + 1;
+	}
+
+	/** Returns the color of the maximizing player. **/
+	public char getMaxColor() {
+		return maxColor;
+	}
+
+	/** Returns the color of the minimizing player. **/
+	public char getMinColor() {
+		return minColor;
+	}
+}
@@ -0,0 +1,76 @@
+package model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder event of one move searched by Search, so a slow move
+ * 	can be looked into in a recording of a running game. The event's duration
+ * 	is the time the search took. Costs nothing unless a recording enables it.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+@Name("pentatron.Search")
+@Label("Search")
+@Category("Pentatron")
+@Description("One move searched by the alpha-beta search")
+class SearchEvent extends Event {
+
+	@Label("Move")
+	String move;
+
+	@Label("Score")
+	int score;
+
+	@Label("Depth")
+	int depth;
+
+	@Label("Nodes")
+	long nodes;
+
+	@Label("Leaf Evaluations")
+	long leafEvaluations;
+
+	@Label("Cutoffs")
+	long cutoffs;
+
+	@Label("First Move Cutoff Rate")
+	double firstMoveCutoffRate;
+
+	@Label("Table Probes")
+	long tableProbes;
+
+	@Label("Table Hits")
+	long tableHits;
+
+	@Label("Branching Factor")
+	double branchingFactor;
+
+	@Label("Threads")
+	int threads;
+
+	@Label("Wall Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long nanos;
+
+	/** Copies the counts of a finished search and the move it chose into the event. **/
+	void record(SearchStats stats, int bestMove) {
+		move = Move.toString(bestMove);
+		score = stats.getScore();
+		depth = stats.getDepth();
+		nodes = stats.getNodes();
+		leafEvaluations = stats.getLeafEvaluations();
+		cutoffs = stats.getCutoffs();
+		firstMoveCutoffRate = stats.getFirstMoveCutoffRate();
+		tableProbes = stats.getTableProbes();
+		tableHits = stats.getTableHits();
+		branchingFactor = stats.getBranchingFactor();
+		threads = stats.getThreads();
+		nanos = stats.getNanos();
+	}
+}
@@ -0,0 +1,60 @@
+package model;
+
+/**
+ * Reports how the parallel search scales: searches a few fixed boards with
+ * 	1, 2, 4... threads for the same time and prints the boards visited per
+ * 	second and the depth reached for each thread count. Every board is
+ * 	searched by a new engine, so none starts from a table another filled.
+ *
+ * 	Usage: SearchScaling [maxThreads] [millisPerBoard]
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class SearchScaling {
+
+	/** Fixed boards, as the moves played from an empty board by White then Black. **/
+	private static final String[][] BOARDS = {
+		{},
+		{"1/5 2r", "4/5 1l"},
+		{"1/5 2r", "4/5 1l", "2/5 3r", "3/5 4l", "1/1 4r", "2/9 1l"},
+	};
+
+	/**
+	 * Runs the report.
+	 *
+	 * @param args optional maximum thread count and milliseconds per board
+	 */
+	public static void main(String[] args) {
+		int maxThreads = (args.length > 0) ? Integer.parseInt(args[0])
+				: Runtime.getRuntime().availableProcessors();
+		long millis = (args.length > 1) ? Long.parseLong(args[1]) : 2000;
+
+		System.out.println("threads  nodes/sec  speedup  first-cut  depths");
+		long base = 0;
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			long nps = 0;
+			double firstCut = 0;
+			String depths = "";
+			for (String[] moves : BOARDS) {
+				BoardState board = new BoardState();
+				char color = 'W';
+				for (String move : moves) {
+					board.makeMove(Move.parse(move), color);
+					color = (color == 'W') ? 'B' : 'W';
+				}
+				Search search = new Search('W', 'B', threads, 20);
+				search.search(board, color == 'W', millis);
+				nps += search.getNodesPerSecond() / BOARDS.length;
+				firstCut += search.getFirstMoveCutoffRate() / BOARDS.length;
+				depths += " " + search.getDepth();
+				search.shutdown();
+			}
+
+			if (base == 0) {
+				base = Math.max(nps, 1);
+			}
+			System.out.printf("%7d  %9d  %7.2f  %9.2f %s%n", threads, nps, (double) nps / base, firstCut, depths);
+		}
+	}
+}
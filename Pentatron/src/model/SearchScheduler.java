@@ -0,0 +1,120 @@
+package model;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the searches of many games on a fixed number of worker threads, so
+ * 	however many games are played at once, no more searches run than there
+ * 	are workers. Waiting searches are queued fairly: the next free worker
+ * 	takes the search of the client that has used the least worker time since
+ * 	it was created or last reset, and clients with the same time in the order
+ * 	they asked. A game that thinks long on every move cannot keep the workers
+ * 	from the other games.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class SearchScheduler {
+
+	/** Someone searches are run for, such as one game; counts the worker time it used. **/
+	public static final class Client {
+		private final AtomicLong usedNanos = new AtomicLong();
+
+		/** Returns the nanoseconds of worker time this client's searches took. **/
+		public long getUsedNanos() {
+			return usedNanos.get();
+		}
+
+		/**
+		 * Counts the client's worker time from zero again, e.g. when a new game
+		 * 	starts, so a long-lived client is not queued behind new ones for good.
+		 */
+		public void reset() {
+			usedNanos.set(0);
+		}
+	}
+
+	private final ThreadPoolExecutor pool;
+	private final AtomicLong arrivals;
+
+	/**
+	 * Creates a scheduler.
+	 *
+	 * @param workers number of searches run at once, at least 1
+	 */
+	public SearchScheduler(int workers) {
+		pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+				new PriorityBlockingQueue<>(), r -> {
+					Thread t = new Thread(r, "pentatron-worker");
+					t.setDaemon(true);
+					return t;
+				});
+		arrivals = new AtomicLong();
+	}
+
+	/**
+	 * Runs a search on a worker and waits for its result. The time it runs,
+	 * 	not the time it waits for a worker, is added to the client's time.
+	 *
+	 * @param client client the search is run for
+	 * @param search the search
+	 * @return result of the search
+	 * @throws InterruptedException if interrupted while waiting
+	 * @throws ExecutionException if the search failed
+	 */
+	public <T> T run(Client client, Callable<T> search) throws InterruptedException, ExecutionException {
+		Job<T> job = new Job<>(client, search, client.getUsedNanos(), arrivals.getAndIncrement());
+		pool.execute(job);
+		return job.get();
+	}
+
+	/** Returns the number of searches waiting for a worker. **/
+	public int getQueued() {
+		return pool.getQueue().size();
+	}
+
+	/**
+	 * Stops the workers. Searches still queued are cancelled, so whoever waits
+	 * 	for them gets a CancellationException instead of waiting for good.
+	 */
+	public void shutdown() {
+		for (Runnable queued : pool.shutdownNow()) {
+			((Future<?>) queued).cancel(false);
+		}
+	}
+
+	/** A queued search, ordered by the time its client had used when it was queued. **/
+	private static final class Job<T> extends FutureTask<T> implements Comparable<Job<?>> {
+		private final long used;
+		private final long arrival;
+
+		Job(Client client, Callable<T> search, long used, long arrival) {
+			// The time is counted before the result is given, so the caller sees it
+			super(() -> {
+				long start = System.nanoTime();
+				try {
+					return search.call();
+				} finally {
+					client.usedNanos.addAndGet(System.nanoTime() - start);
+				}
+			});
+			this.used = used;
+			this.arrival = arrival;
+		}
+
+		@Override
+		public int compareTo(Job<?> other) {
+			if (used != other.used) {
+				return Long.compare(used, other.used);
+			}
+			return Long.compare(arrival, other.arrival);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package model;
+
+/**
+ * Counts of what one search did, summed over all of its threads. Each thread
+ * 	counts in its own fields while searching, and the counts are only added up
+ * 	once the threads have stopped, so counting does not slow the search down.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public final class SearchStats {
+
+	private final long nodes;
+	private final long leafEvaluations;
+	private final long cutoffs;
+	private final long firstMoveCutoffs;
+	private final long tableProbes;
+	private final long tableHits;
+	private final int depth;
+	private final double branchingFactor;
+	private final long nanos;
+	private final int threads;
+	private final int score;
+
+	/**
+	 * Creates the counts of a search.
+	 *
+	 * @param nodes boards visited
+	 * @param leafEvaluations boards scored by the heuristic
+	 * @param cutoffs boards pruned
+	 * @param firstMoveCutoffs boards pruned by their first move
+	 * @param tableProbes transposition table lookups
+	 * @param tableHits transposition table lookups that found an entry
+	 * @param depth deepest depth finished
+	 * @param branchingFactor effective branching factor of the main thread, 0 if unknown
+	 * @param nanos wall time in nanoseconds
+	 * @param threads number of threads searching
+	 * @param score score of the chosen move, for the maximizing color
+	 */
+	public SearchStats(long nodes, long leafEvaluations, long cutoffs, long firstMoveCutoffs,
+			long tableProbes, long tableHits, int depth, double branchingFactor, long nanos,
+			int threads, int score) {
+		this.nodes = nodes;
+		this.leafEvaluations = leafEvaluations;
+		this.cutoffs = cutoffs;
+		this.firstMoveCutoffs = firstMoveCutoffs;
+		this.tableProbes = tableProbes;
+		this.tableHits = tableHits;
+		this.depth = depth;
+		this.branchingFactor = branchingFactor;
+		this.nanos = nanos;
+		this.threads = threads;
+		this.score = score;
+	}
+
+	/** Returns the number of boards visited. **/
+	public long getNodes() {
+		return nodes;
+	}
+
+	/** Returns the number of boards scored by the heuristic. **/
+	public long getLeafEvaluations() {
+		return leafEvaluations;
+	}
+
+	/** Returns the number of boards pruned. **/
+	public long getCutoffs() {
+		return cutoffs;
+	}
+
+	/** Returns the number of boards pruned by their first move. **/
+	public long getFirstMoveCutoffs() {
+		return firstMoveCutoffs;
+	}
+
+	/** Returns how often the first move tried pruned, out of all prunes, between 0 and 1. **/
+	public double getFirstMoveCutoffRate() {
+		return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+	}
+
+	/** Returns the number of transposition table lookups. **/
+	public long getTableProbes() {
+		return tableProbes;
+	}
+
+	/** Returns the number of transposition table lookups that found an entry. **/
+	public long getTableHits() {
+		return tableHits;
+	}
+
+	/** Returns how often a transposition table lookup found an entry, between 0 and 1. **/
+	public double getTableHitRate() {
+		return tableProbes == 0 ? 0 : (double) tableHits / tableProbes;
+	}
+
+	/** Returns the deepest depth finished. **/
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Returns the effective branching factor: the number of moves per board
+	 * 	of a full tree as deep as the search with as many boards as the main
+	 * 	thread visited. Lower means better pruning and table use.
+	 *
+	 * @return branching factor, 0 if no depth finished
+	 */
+	public double getBranchingFactor() {
+		return branchingFactor;
+	}
+
+	/** Returns the wall time in nanoseconds. **/
+	public long getNanos() {
+		return nanos;
+	}
+
+	/** Returns the boards visited per second. **/
+	public long getNodesPerSecond() {
+		return nanos == 0 ? 0 : nodes * 1000000000L / nanos;
+	}
+
+	/** Returns the number of threads searching. **/
+	public int getThreads() {
+		return threads;
+	}
+
+	/** Returns the score of the chosen move, for the maximizing color. **/
+	public int getScore() {
+		return score;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("depth %d, score %d, %d nodes (%d leaves) in %d ms, %d nodes/s, "
+				+ "cutoffs %d (%.1f%% first move), tt hits %d/%d, ebf %.2f, %d threads",
+				depth, score, nodes, leafEvaluations, nanos / 1000000, getNodesPerSecond(),
+				cutoffs, 100 * getFirstMoveCutoffRate(), tableHits, tableProbes, branchingFactor,
+				threads);
+	}
+}
@@ -0,0 +1,159 @@
+package model;
+
+/**
+ * The 8 symmetries of the Pentago board: the 4 quarter turns of the whole
+ * 	board, each with and without a left-right mirror. Every symmetry moves
+ * 	whole blocks onto blocks and turns the inside of every block the same way,
+ * 	so a 36 bit mask is transformed with one 512 entry table per block.
+ *
+ * 	Symmetry s is the mirror if s >= 4, followed by (s % 4) clockwise turns.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public final class Symmetry {
+
+	/** Number of symmetries, including the identity 0. **/
+	public static final int COUNT = 8;
+
+	/** Position each position is moved to, by symmetry. **/
+	private static final int[][] SQUARE = new int[COUNT][36];
+
+	/** Block each block is moved to, by symmetry. **/
+	private static final int[][] BLOCK = new int[COUNT][4];
+
+	/** Transformed 9 bit contents of a block, by symmetry. **/
+	private static final short[][] CONTENTS = new short[COUNT][512];
+
+	/** Symmetry that undoes each symmetry. **/
+	private static final int[] INVERSE = new int[COUNT];
+
+	static {
+		for (int s = 0; s < COUNT; s++) {
+			for (int row = 0; row < 6; row++) {
+				for (int col = 0; col < 6; col++) {
+					int r = row;
+					int c = (s >= 4) ? 5 - col : col;
+					for (int turn = 0; turn < (s & 3); turn++) {
+						int t = r;
+						r = c;
+						c = 5 - t;
+					}
+					SQUARE[s][BoardState.square(row, col)] = BoardState.square(r, c);
+				}
+			}
+			for (int block = 0; block < 4; block++) {
+				BLOCK[s][block] = SQUARE[s][block * 9] / 9;
+			}
+			for (int m = 0; m < 512; m++) {
+				int t = 0;
+				for (int pos = 0; pos < 9; pos++) {
+					if ((m & (1 << pos)) != 0) {
+						t |= 1 << (SQUARE[s][pos] % 9);
+					}
+				}
+				CONTENTS[s][m] = (short) t;
+			}
+		}
+		for (int s = 0; s < COUNT; s++) {
+			for (int u = 0; u < COUNT; u++) {
+				if (SQUARE[u][SQUARE[s][0]] == 0 && SQUARE[u][SQUARE[s][1]] == 1) {
+					INVERSE[s] = u;
+				}
+			}
+		}
+	}
+
+	private Symmetry() {
+	}
+
+	/**
+	 * Transforms a mask of positions.
+	 *
+	 * @param s symmetry
+	 * @param mask 36 bit mask
+	 * @return transformed mask
+	 */
+	public static long transform(int s, long mask) {
+		short[] contents = CONTENTS[s];
+		int[] block = BLOCK[s];
+		return ((long) contents[(int) mask & 0x1FF] << (block[0] * 9))
+				| ((long) contents[(int) (mask >>> 9) & 0x1FF] << (block[1] * 9))
+				| ((long) contents[(int) (mask >>> 18) & 0x1FF] << (block[2] * 9))
+				| ((long) contents[(int) (mask >>> 27) & 0x1FF] << (block[3] * 9));
+	}
+
+	/**
+	 * Transforms a packed move. Mirrored symmetries also flip the direction of
+	 * 	rotation.
+	 *
+	 * @param s symmetry
+	 * @param move packed move, or Move.NONE
+	 * @return transformed move
+	 */
+	public static int transformMove(int s, int move) {
+		if (move == Move.NONE) {
+			return Move.NONE;
+		}
+		int square = SQUARE[s][move >>> 3];
+		int rotBlock = BLOCK[s][(move >>> 1) & 3];
+		int dir = (move & 1) ^ (s >>> 2);
+		return (square << 3) | (rotBlock << 1) | dir;
+	}
+
+	/**
+	 * Returns the symmetry that undoes the given one.
+	 *
+	 * @param s symmetry
+	 * @return inverse symmetry
+	 */
+	public static int inverse(int s) {
+		return INVERSE[s];
+	}
+
+	/**
+	 * Returns the symmetry that turns a pair of masks, such as the tiles of the
+	 * 	player to move and of the other player, into their canonical form: the
+	 * 	one with the smallest first mask, then the smallest second mask.
+	 *
+	 * @param first 36 bit mask
+	 * @param second 36 bit mask
+	 * @return canonical symmetry
+	 */
+	public static int canonical(long first, long second) {
+		int best = 0;
+		long bestFirst = first;
+		long bestSecond = second;
+		for (int s = 1; s < COUNT; s++) {
+			long f = transform(s, first);
+			long o = transform(s, second);
+			if (f < bestFirst || (f == bestFirst && o < bestSecond)) {
+				best = s;
+				bestFirst = f;
+				bestSecond = o;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns a 64 bit key for a pair of masks transformed by a symmetry. Both
+	 * 	36 bit masks do not fit in 64 bits, so they are mixed (with the
+	 * 	SplitMix64 finalizer), and different pairs share a key only by chance.
+	 *
+	 * @param s symmetry, usually canonical(first, second)
+	 * @param first 36 bit mask
+	 * @param second 36 bit mask
+	 * @return key
+	 */
+	public static long key(int s, long first, long second) {
+		return mix(transform(s, first) ^ mix(transform(s, second) + 0x9E3779B97F4A7C15L));
+	}
+
+	/** Scrambles the bits of a long. **/
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,183 @@
+package model;
+
+/**
+ * Looks for forced wins by threats alone. The attacker only plays moves after
+ * 	which it threatens to win on its next move, so the defender has to answer
+ * 	every time, and the search can look many moves deeper than the full width
+ * 	search in the same time. Defender answers that do not stop the threat are
+ * 	refuted by the threatened move straight away, which is tried first.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class ThreatSearch {
+
+	/** Most attacker moves a forced win may take. **/
+	public static final int MAX_DEPTH = 8;
+
+	private final int[][] moveLists;
+	private final int[] threats;
+	private long maxNodes;
+	private long nodes;
+	private long deadline;
+	private boolean givenUp;
+
+	/**
+	 * Creates a threat search.
+	 *
+	 * @param maxNodes moves to play at most per search before giving up
+	 */
+	public ThreatSearch(long maxNodes) {
+		this.maxNodes = maxNodes;
+		deadline = Long.MAX_VALUE;
+		moveLists = new int[2 * MAX_DEPTH + 2][Move.COUNT];
+		threats = new int[MAX_DEPTH + 1];
+	}
+
+	/**
+	 * Looks for a move that wins by force through threats.
+	 *
+	 * @param bs board to search, must not be over; restored when done
+	 * @param attacker color to move and win
+	 * @param depth attacker moves the win may take, 1 for an immediate win
+	 * @return the first move of a forced win, or Move.NONE if none was found
+	 */
+	public int findForcedWin(BoardState bs, char attacker, int depth) {
+		nodes = 0;
+		givenUp = false;
+		depth = Math.min(depth, MAX_DEPTH);
+		for (int d = 1; d <= depth; d++) {
+			int move = attack(bs, attacker, d, 0);
+			if (move != Move.NONE) {
+				return move;
+			} else if (givenUp()) {
+				break;
+			}
+		}
+		return Move.NONE;
+	}
+
+	/**
+	 * Finds a move that wins on the spot.
+	 *
+	 * @param bs board, must not be over; restored when done
+	 * @param color color to move
+	 * @param hint move to try first, or Move.NONE
+	 * @param moves array of at least Move.COUNT entries to generate into
+	 * @return winning move, or Move.NONE
+	 */
+	public int findWinningMove(BoardState bs, char color, int hint, int[] moves) {
+		long own = (color == 'W') ? bs.getWhite() : bs.getBlack();
+		if (Long.bitCount(own) < 4) {	// Not enough tiles for five yet
+			return Move.NONE;
+		}
+
+		if (hint != Move.NONE && bs.isLegal(Move.block(hint), Move.pos(hint), 0, 'r')
+				&& wins(bs, hint, color)) {
+			return hint;
+		}
+
+		int count = bs.generateMoves(moves, color);
+		for (int i = 0; i < count; i++) {
+			if (moves[i] != hint && wins(bs, moves[i], color)) {
+				return moves[i];
+			}
+		}
+		return Move.NONE;
+	}
+
+	/** Returns true if the move wins outright for color. **/
+	private boolean wins(BoardState bs, int move, char color) {
+		nodes++;
+		boolean won = bs.makeMove(move, color) && bs.getWinner() == color;
+		bs.unmakeMove();
+		return won;
+	}
+
+	/**
+	 * Attacker to move: finds a move that wins within depth attacker moves
+	 * 	whatever the defender answers.
+	 *
+	 * @return winning move, or Move.NONE
+	 */
+	private int attack(BoardState bs, char attacker, int depth, int ply) {
+		char defender = (attacker == 'W') ? 'B' : 'W';
+		int[] moves = moveLists[2 * ply];
+
+		int win = findWinningMove(bs, attacker, ply > 0 ? threats[ply - 1] : Move.NONE, moves);
+		if (win != Move.NONE || depth == 1 || givenUp()) {
+			return win;
+		}
+
+		int count = bs.generateMoves(moves, attacker);
+		int[] replies = moveLists[2 * ply + 1];
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			nodes++;
+			if (bs.makeMove(move, attacker)) {	// Not a win, checked above
+				bs.unmakeMove();
+				continue;
+			}
+
+			// Only threats: the attacker must win next move unless the defender answers,
+			// and the defender must not be able to win first
+			int threat = findWinningMove(bs, attacker, Move.NONE, replies);
+			boolean forced = threat != Move.NONE
+					&& findWinningMove(bs, defender, Move.NONE, replies) == Move.NONE;
+			threats[ply] = threat;
+
+			if (forced) {
+				int answers = bs.generateMoves(replies, defender);
+				for (int j = 0; j < answers && forced; j++) {
+					nodes++;
+					if (bs.makeMove(replies[j], defender)) {
+						forced = bs.getWinner() == attacker;
+					} else {
+						forced = attack(bs, attacker, depth - 1, ply + 1) != Move.NONE;
+					}
+					bs.unmakeMove();
+					forced &= !givenUp();
+				}
+			}
+			bs.unmakeMove();
+
+			if (forced) {
+				return move;
+			} else if (givenUp()) {
+				break;
+			}
+		}
+		return Move.NONE;
+	}
+
+	/** Returns true once the search played all its moves or passed its deadline. **/
+	private boolean givenUp() {
+		if (!givenUp && (nodes > maxNodes || System.nanoTime() > deadline)) {
+			givenUp = true;
+		}
+		return givenUp;
+	}
+
+	/**
+	 * Sets the time after which searches give up, whatever moves they have left.
+	 *
+	 * @param deadline System.nanoTime() value, Long.MAX_VALUE for none
+	 */
+	public void setDeadline(long deadline) {
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Sets how many moves a search may play before giving up.
+	 *
+	 * @param maxNodes moves to play at most per search
+	 */
+	public void setMaxNodes(long maxNodes) {
+		this.maxNodes = maxNodes;
+	}
+
+	/** Returns the number of moves played by the last search. **/
+	public long getNodes() {
+		return nodes;
+	}
+}
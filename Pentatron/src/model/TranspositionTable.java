@@ -0,0 +1,127 @@
+package model;
+
+/**
+ * Fixed size hash table of searched board states, kept in two primitive arrays.
+ * 	Each entry packs the score, best move, search depth, bound type and the
+ * 	search generation that stored it into a single long.
+ *
+ * 	Entries live in buckets of two. The first slot keeps the deepest result and
+ * 	is only replaced by a search at least as deep, or once it is left over from
+ * 	an older search. Everything else goes into the second slot, which is always
+ * 	replaced.
+ *
+ * 	Several search threads may read and write the table at once without locks.
+ * 	Each key is stored XOR-ed with its entry, so a slot half written by one
+ * 	thread while another reads it no longer matches the key and is ignored.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class TranspositionTable {
+
+	/** Bound types. An entry always has one, so a stored entry is never 0. **/
+	public static final int EXACT = 1;
+	public static final int LOWER = 2;
+	public static final int UPPER = 3;
+
+	private final long[] keys;
+	private final long[] data;
+	private final int mask;
+	private int generation;
+
+	/**
+	 * Creates an empty table.
+	 *
+	 * @param sizeBits the table holds 2^sizeBits entries
+	 */
+	public TranspositionTable(int sizeBits) {
+		keys = new long[1 << sizeBits];
+		data = new long[1 << sizeBits];
+		mask = (1 << sizeBits) - 2;	// Index of the first slot in a bucket
+		generation = 0;
+	}
+
+	/** Starts a new search, making all stored entries replaceable. **/
+	public void newSearch() {
+		generation = (generation + 1) & 0xFF;
+	}
+
+	/** Removes every entry. **/
+	public void clear() {
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = 0L;
+			data[i] = 0L;
+		}
+	}
+
+	/**
+	 * Looks up a board state.
+	 *
+	 * @param key Zobrist hash of the board
+	 * @return packed entry, or 0 if the board is not stored
+	 */
+	public long probe(long key) {
+		int i = (int) key & mask;
+		long entry = data[i];
+		if ((keys[i] ^ entry) == key && entry != 0) {
+			return entry;
+		}
+		entry = data[i + 1];
+		if ((keys[i + 1] ^ entry) == key && entry != 0) {
+			return entry;
+		}
+		return 0L;
+	}
+
+	/**
+	 * Stores a search result.
+	 *
+	 * @param key Zobrist hash of the board
+	 * @param depth depth searched
+	 * @param bound EXACT, LOWER or UPPER
+	 * @param score score of the board
+	 * @param move best move found, or Move.NONE
+	 */
+	public void store(long key, int depth, int bound, int score, int move) {
+		long entry = (score & 0xFFFFFFFFL)
+				| ((long) (move + 1) << 32)
+				| ((long) depth << 42)
+				| ((long) bound << 48)
+				| ((long) generation << 50);
+
+		int i = (int) key & mask;
+		long old = data[i];
+		if ((keys[i] ^ old) == key || old == 0 || depth >= depth(old) || generation(old) != generation) {
+			keys[i] = key ^ entry;
+			data[i] = entry;
+		} else {
+			keys[i + 1] = key ^ entry;
+			data[i + 1] = entry;
+		}
+	}
+
+	/** Returns the score of a packed entry. **/
+	public static int score(long entry) {
+		return (int) entry;
+	}
+
+	/** Returns the best move of a packed entry, or Move.NONE. **/
+	public static int move(long entry) {
+		return (int) ((entry >>> 32) & 0x3FF) - 1;
+	}
+
+	/** Returns the searched depth of a packed entry. **/
+	public static int depth(long entry) {
+		return (int) ((entry >>> 42) & 0x3F);
+	}
+
+	/** Returns the bound type of a packed entry. **/
+	public static int bound(long entry) {
+		return (int) ((entry >>> 48) & 3);
+	}
+
+	/** Returns the generation of a packed entry. **/
+	private static int generation(long entry) {
+		return (int) ((entry >>> 50) & 0xFF);
+	}
+}
@@ -0,0 +1,71 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that searches sharing a transposition table, or an engine reused
+ * 	for another game, score boards the same as fresh ones.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class AlphaBetaTest {
+
+	private static final int DEPTH = 3;
+
+	@Test
+	public void sharedTableKeepsTheColorToMoveApart() {
+		Random random = new Random(6);
+		TranspositionTable shared = new TranspositionTable(16);
+		for (int i = 0; i < 20; i++) {
+			BoardState bs = randomBoard(random, 8);
+			// The same tiles with white, then black to move, on one table
+			for (boolean maxPlayer : new boolean[] {true, false}) {
+				int score = new AlphaBeta('W', 'B', shared).search(bs, DEPTH, maxPlayer);
+				int fresh = new AlphaBeta('W', 'B', new TranspositionTable(16)).search(bs, DEPTH, maxPlayer);
+				assertEquals(fresh, score, "board " + i + (maxPlayer ? " white" : " black") + " to move");
+			}
+		}
+	}
+
+	@Test
+	public void reusedEngineScoresLikeAFreshOne() {
+		Random random = new Random(7);
+		Search reused = new Search('W', 'B', 1, 16);
+		reused.setDepthLimit(DEPTH);
+		for (int i = 0; i < 5; i++) {
+			BoardState bs = randomBoard(random, 8);
+			for (boolean maxPlayer : new boolean[] {true, false}) {
+				Search fresh = new Search('W', 'B', 1, 16);
+				fresh.setDepthLimit(DEPTH);
+				fresh.search(bs, maxPlayer, HeadlessEngine.NO_TIME_LIMIT);
+				reused.search(bs, maxPlayer, HeadlessEngine.NO_TIME_LIMIT);
+				assertEquals(fresh.getScore(), reused.getScore(), "board " + i + (maxPlayer ? " white" : " black") + " to move");
+				fresh.shutdown();
+			}
+		}
+		reused.shutdown();
+	}
+
+	/** Returns a board with the given number of tiles played at random, not over. **/
+	private static BoardState randomBoard(Random random, int tiles) {
+		int[] moves = new int[Move.COUNT];
+		while (true) {
+			BoardState bs = new BoardState();
+			char color = 'W';
+			boolean over = false;
+			for (int i = 0; i < tiles && !over; i++) {
+				int count = bs.generateMoves(moves, color);
+				over = bs.makeMove(moves[random.nextInt(count)], color);
+				color = (color == 'W') ? 'B' : 'W';
+			}
+			if (!over) {
+				return bs;
+			}
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the bitboard BoardState: its lines of five, the check for a
+ * 	finished game after a move against a check of the whole board, that
+ * 	unmakeMove restores everything makeMove changed, and that the hash and
+ * 	2-in-a-row counts kept up to date move by move are those of the tiles.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class BoardStateTest {
+
+	@Test
+	public void linesAreEveryFiveInARow() {
+		// Every row, column and diagonal of five, found by walking the 6x6 board
+		Set<Long> expected = new HashSet<>();
+		int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+		for (int row = 0; row < 6; row++) {
+			for (int col = 0; col < 6; col++) {
+				for (int[] d : directions) {
+					int endRow = row + 4 * d[0];
+					int endCol = col + 4 * d[1];
+					if (endRow < 6 && endCol >= 0 && endCol < 6) {
+						long line = 0L;
+						for (int i = 0; i < 5; i++) {
+							line |= 1L << square(row + i * d[0], col + i * d[1]);
+						}
+						expected.add(line);
+					}
+				}
+			}
+		}
+		assertEquals(32, expected.size());
+
+		Set<Long> lines = new HashSet<>();
+		for (long line : BoardState.LINES) {
+			lines.add(line);
+		}
+		assertEquals(expected, lines);
+	}
+
+	@Test
+	public void everyLineWinsAndFourOfItDoNot() {
+		for (long line : BoardState.LINES) {
+			for (char color : new char[] {'W', 'B'}) {
+				BoardState bs = new BoardState();
+				long rest = line;
+				while (rest != 0) {
+					assertFalse(bs.isGameOver(), "four of a line");
+					int square = Long.numberOfTrailingZeros(rest);
+					rest &= rest - 1;
+					bs.placeTile(square / 9, square % 9, color);
+				}
+				assertTrue(bs.isGameOver());
+				assertEquals(color, bs.getWinner());
+			}
+		}
+	}
+
+	@Test
+	public void checkAfterAMoveMatchesAFullCheck() {
+		Random random = new Random(2);
+		int[] moves = new int[Move.COUNT];
+		for (int game = 0; game < 500; game++) {
+			BoardState bs = new BoardState();
+			char color = 'W';
+			boolean over = false;
+			while (!over) {
+				int count = bs.generateMoves(moves, color);
+				// Checks only the lines through the tile and the rotated block
+				over = bs.makeMove(moves[random.nextInt(count)], color);
+				BoardState full = new BoardState(bs);
+				assertEquals(full.isGameOver(), over, "game " + game);
+				assertEquals(full.getWinner(), bs.getWinner(), "game " + game);
+				color = (color == 'W') ? 'B' : 'W';
+			}
+		}
+	}
+
+	@Test
+	public void unmakeMoveRestoresTheBoard() {
+		Random random = new Random(3);
+		int[] moves = new int[Move.COUNT];
+		for (int game = 0; game < 500; game++) {
+			BoardState bs = new BoardState();
+			Deque<long[]> before = new ArrayDeque<>();
+			char color = 'W';
+			boolean over = false;
+			// Plays a random game, taking back a move now and then
+			while (!over) {
+				if (!before.isEmpty() && random.nextInt(4) == 0) {
+					bs.unmakeMove();
+					assertArrayEquals(before.pop(), snapshot(bs), "game " + game);
+					color = (color == 'W') ? 'B' : 'W';
+					continue;
+				}
+				before.push(snapshot(bs));
+				int count = bs.generateMoves(moves, color);
+				over = bs.makeMove(moves[random.nextInt(count)], color);
+				color = (color == 'W') ? 'B' : 'W';
+			}
+			while (!before.isEmpty()) {
+				bs.unmakeMove();
+				assertArrayEquals(before.pop(), snapshot(bs), "game " + game);
+			}
+		}
+	}
+
+	@Test
+	public void hashMatchesARecomputedOne() {
+		Random random = new Random(5);
+		int[] moves = new int[Move.COUNT];
+		Set<Long> hashes = new HashSet<>();
+		Set<String> boards = new HashSet<>();
+		for (int game = 0; game < 200; game++) {
+			BoardState bs = new BoardState();
+			char color = 'W';
+			boolean over = false;
+			while (!over) {
+				int count = bs.generateMoves(moves, color);
+				over = bs.makeMove(moves[random.nextInt(count)], color);
+				assertEquals(rebuilt(bs).getHash(), bs.getHash(), "game " + game);
+				hashes.add(bs.getHash());
+				boards.add(bs.getWhite() + "/" + bs.getBlack());
+				color = (color == 'W') ? 'B' : 'W';
+			}
+		}
+		assertEquals(boards.size(), hashes.size(), "hashes of different boards collide");
+	}
+
+	@Test
+	public void pairCountsMatchRecountedOnes() {
+		Random random = new Random(9);
+		int[] moves = new int[Move.COUNT];
+		for (int game = 0; game < 200; game++) {
+			BoardState bs = new BoardState();
+			char color = 'W';
+			boolean over = false;
+			while (!over) {
+				int count = bs.generateMoves(moves, color);
+				over = bs.makeMove(moves[random.nextInt(count)], color);
+				assertEquals(countPairs(bs.getWhite()), bs.count2inRow('W'), "game " + game);
+				assertEquals(countPairs(bs.getBlack()), bs.count2inRow('B'), "game " + game);
+				color = (color == 'W') ? 'B' : 'W';
+			}
+		}
+	}
+
+	/** Counts the 2-in-a-rows among the given tiles from scratch. **/
+	private static int countPairs(long tiles) {
+		int pairs = 0;
+		for (int a = 0; a < 36; a++) {
+			if ((tiles & (1L << a)) != 0) {
+				pairs += Long.bitCount(BoardState.PAIRS[a] & tiles & -(1L << (a + 1)));
+			}
+		}
+		return pairs;
+	}
+
+	/** Returns a new board with the same tiles, placed one by one without moves. **/
+	private static BoardState rebuilt(BoardState bs) {
+		BoardState copy = new BoardState();
+		for (int square = 0; square < 36; square++) {
+			char tile = bs.getTile(square / 9, square % 9);
+			if (tile != '.') {
+				copy.placeTile(square / 9, square % 9, tile);
+			}
+		}
+		return copy;
+	}
+
+	/** Returns what makeMove changes on a board, to compare after unmakeMove. **/
+	private static long[] snapshot(BoardState bs) {
+		return new long[] {bs.getWhite(), bs.getBlack(), bs.getWinner(), bs.getHash(),
+				bs.count2inRow('W'), bs.count2inRow('B')};
+	}
+
+	/** Returns the bit index of a position given by row and column, like BoardState. **/
+	private static int square(int row, int col) {
+		int block = (row / 3) * 2 + col / 3;
+		int pos = (row % 3) * 3 + col % 3;
+		return block * 9 + pos;
+	}
+}
@@ -0,0 +1,71 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that a table file that is not a table, or is cut short, fails to
+ * 	open, and that openOrEmpty plays on without it.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class EndgameTableTest {
+
+	private static final int MAGIC = 0x50454731;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void readsAWholeTable() throws IOException {
+		Path file = table(1, 1);
+		assertEquals(1, EndgameTable.open(file.toString()).size());
+		assertEquals(1, EndgameTable.openOrEmpty(file.toString()).size());
+	}
+
+	@Test
+	public void badTablesGiveAnEmptyTable() throws IOException {
+		Path garbage = dir.resolve("garbage.endgame");
+		Files.write(garbage, "not an endgame table".getBytes());
+		Path truncated = table(3, 1);
+		for (Path file : new Path[] {garbage, truncated}) {
+			assertThrows(IllegalStateException.class, () -> EndgameTable.open(file.toString()));
+			EndgameTable table = EndgameTable.openOrEmpty(file.toString());
+			assertEquals(0, table.size());
+			// A board late enough for any table to cover
+			BoardState bs = new BoardState();
+			for (int square = 0; square < 34; square++) {
+				bs.placeTile(square / 9, square % 9, (square % 4 < 2) ? 'W' : 'B');
+			}
+			assertEquals(ProofNumberSearch.UNKNOWN, table.probe(bs, 'W'));
+		}
+	}
+
+	@Test
+	public void missingTableIsEmpty() {
+		assertEquals(0, EndgameTable.open(dir.resolve("missing.endgame").toString()).size());
+	}
+
+	/** Writes a table whose header counts the given entries but that holds only written of them. **/
+	private Path table(long count, int written) throws IOException {
+		Path file = dir.resolve("test.endgame");
+		try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+			out.writeInt(MAGIC);
+			out.writeInt(4);
+			out.writeLong(count);
+			for (int i = 0; i < written; i++) {
+				out.writeLong(i << 2);
+			}
+		}
+		return file;
+	}
+}
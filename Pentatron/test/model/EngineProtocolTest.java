@@ -0,0 +1,223 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the engine protocol's commands and replies, and that searches of the
+ * 	headless engine end when stopped or at their depth.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class EngineProtocolTest {
+
+	private HeadlessEngine engine;
+	private ByteArrayOutputStream bytes;
+	private EngineProtocol protocol;
+
+	@BeforeEach
+	public void setUp() {
+		engine = new HeadlessEngine(1, 16);
+		bytes = new ByteArrayOutputStream();
+		protocol = new EngineProtocol(engine, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+	}
+
+	@AfterEach
+	public void tearDown() {
+		engine.shutdown();
+	}
+
+	@Test
+	public void parsesMovesAndTiles() {
+		assertEquals(Move.encode(0, 4, 1, 'r'), EngineProtocol.parseMove("1/5", "2r"));
+		assertEquals(Move.encode(3, 8, 3, 'l'), EngineProtocol.parseMove("4/9", "4L"));
+		assertThrows(IllegalArgumentException.class, () -> EngineProtocol.parseMove("5/1", "1r"));
+		assertThrows(IllegalArgumentException.class, () -> EngineProtocol.parseMove("1/0", "1r"));
+		assertThrows(IllegalArgumentException.class, () -> EngineProtocol.parseMove("1/1", "1x"));
+		assertThrows(IllegalArgumentException.class, () -> EngineProtocol.parseMove("1-1", "1r"));
+
+		String tiles = "W....B" + "......" + "..W..." + "......" + "...B.." + ".....W";
+		assertEquals(tiles, EngineProtocol.tiles(EngineProtocol.parseTiles(tiles)));
+		assertThrows(IllegalArgumentException.class, () -> EngineProtocol.parseTiles("W...."));
+		assertThrows(IllegalArgumentException.class, () -> EngineProtocol.parseTiles(tiles.replace('B', 'X')));
+	}
+
+	@Test
+	public void positionSetsUpTheBoard() {
+		assertTrue(protocol.execute("position startpos moves 1/5 2r 4/5 1l"));
+		assertTrue(protocol.execute("board"));
+		String board = EngineProtocol.tiles(board("1/5 2r", "4/5 1l"));
+		assertEquals("board " + board + " W", lastLine());
+
+		String tiles = "WWWW.." + "BBBB.." + "......" + "......" + "......" + "......";
+		protocol.execute("position board " + tiles + " b moves 2/5 4r");
+		protocol.execute("board");
+		assertTrue(lastLine().endsWith(" W"));
+		assertEquals('B', engine.getBoard().getTile(1, 4));
+	}
+
+	@Test
+	public void badCommandsReplyWithErrors() {
+		String[] bad = {
+			"position", "position startpos 1/5 2r", "position startpos moves 1/5",
+			"position startpos moves 1/5 2r 1/5 2r", "position board WW W",
+			"go nodes 5", "go depth", "dance",
+		};
+		for (String command : bad) {
+			assertTrue(protocol.execute(command), command);
+			assertTrue(lastLine().startsWith("error "), command + " gave " + lastLine());
+		}
+		assertFalse(protocol.execute("quit"));
+	}
+
+	@Test
+	public void goRepliesWithInfoAndBestMove() {
+		protocol.execute("position startpos moves 1/5 2r");
+		protocol.execute("go depth 2");
+		String[] lines = awaitBestMove();
+		assertTrue(lines[lines.length - 2].startsWith("info depth 2 "), lines[lines.length - 2]);
+		String[] words = lines[lines.length - 1].split(" ");
+		assertEquals(3, words.length);
+		int move = EngineProtocol.parseMove(words[1], words[2]);
+		assertTrue(board("1/5 2r").isLegal(Move.block(move), Move.pos(move), Move.rotBlock(move), Move.rotation(move)));
+	}
+
+	@Test
+	public void movetimeBoundsADeepSearchInEitherOrder() {
+		// Searching 20 moves deep would take far longer than the default movetime
+		for (String go : new String[] {"go movetime 2000 depth 20", "go depth 20 movetime 2000"}) {
+			protocol.execute("position startpos moves 1/5 2r 4/5 1l");
+			protocol.execute(go);
+			String[] lines = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> awaitBestMove());
+			assertTrue(lines[lines.length - 2].startsWith("info depth "), go);
+			bytes.reset();
+		}
+	}
+
+	@Test
+	public void depthIsRejectedByMonteCarlo() {
+		HeadlessEngine mcts = new HeadlessEngine(new MonteCarloSearch('W', 'B', 1, 1 << 16));
+		EngineProtocol protocol = new EngineProtocol(mcts, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+		protocol.execute("go depth 3");
+		assertEquals("error depth needs the alpha-beta engine", lastLine());
+		assertFalse(mcts.isSearching());
+		mcts.shutdown();
+	}
+
+	@Test
+	public void stopEndsAnInfiniteSearch() {
+		protocol.execute("position startpos moves 1/5 2r");
+		protocol.execute("go infinite");
+		protocol.execute("go depth 1");
+		assertEquals("error Search running", lastLine());
+		protocol.execute("stop");
+		assertTrue(lastLine().startsWith("bestmove "), "stop waits for the move");
+		assertFalse(engine.isSearching());
+	}
+
+	@Test
+	public void stopRightAfterGoIsNotLost() {
+		for (int i = 0; i < 20; i++) {
+			CompletableFuture<Integer> move = engine.goAsync(HeadlessEngine.NO_TIME_LIMIT, HeadlessEngine.NO_DEPTH_LIMIT);
+			assertTimeoutPreemptively(Duration.ofSeconds(10), () -> engine.stop());
+			assertTrue(move.isDone());
+			assertTrue(move.join() != Move.NONE);
+		}
+	}
+
+	@Test
+	public void depthLimitedSearchEndsLateInTheGame() {
+		// A board with 12 empty squares, no forced win by threats and a result the
+		// 	solver can find, which it would have played without searching
+		Random random = new Random(5);
+		ThreatSearch threats = new ThreatSearch(1000000);
+		ProofNumberSearch solver = new ProofNumberSearch(16);
+		BoardState bs;
+		char color;
+		do {
+			bs = new BoardState();
+			color = 'W';
+			int[] moves = new int[Move.COUNT];
+			boolean over = false;
+			while (!over && bs.getEmptyCount() > 12) {
+				int count = bs.generateMoves(moves, color);
+				over = bs.makeMove(moves[random.nextInt(count)], color);
+				color = (color == 'W') ? 'B' : 'W';
+			}
+			if (over || threats.findForcedWin(bs, color, 3) != Move.NONE) {
+				continue;
+			}
+			solver.setDeadline(System.nanoTime() + 1000000000L);
+			int result = solver.solve(bs, color);
+			if (result != ProofNumberSearch.WIN && result != ProofNumberSearch.DRAW) {
+				continue;
+			}
+			break;
+		} while (true);
+
+		engine.setPosition(bs, color);
+		assertTimeoutPreemptively(Duration.ofSeconds(5),
+				() -> engine.go(HeadlessEngine.NO_TIME_LIMIT, 1));
+		assertEquals(1, ((Search) engine.getEngine()).getDepth(), "searched, not solved");
+	}
+
+	@Test
+	public void samePositionWithTheOtherColorToMoveScoresLikeAFreshEngine() {
+		BoardState bs = board("1/5 2r", "4/5 1l", "2/5 3r", "3/5 4l", "1/1 4r", "2/9 1l");
+		engine.setPosition(bs, 'W');
+		engine.go(HeadlessEngine.NO_TIME_LIMIT, 3);
+		engine.setPosition(bs, 'B');
+		engine.go(HeadlessEngine.NO_TIME_LIMIT, 3);
+
+		HeadlessEngine fresh = new HeadlessEngine(1, 16);
+		fresh.setPosition(bs, 'B');
+		fresh.go(HeadlessEngine.NO_TIME_LIMIT, 3);
+		assertEquals(((Search) fresh.getEngine()).getScore(), ((Search) engine.getEngine()).getScore());
+		fresh.shutdown();
+	}
+
+	/** Returns the board after the moves, played from an empty board by White then Black. **/
+	private static BoardState board(String... moves) {
+		BoardState bs = new BoardState();
+		char color = 'W';
+		for (String move : moves) {
+			bs.makeMove(Move.parse(move), color);
+			color = (color == 'W') ? 'B' : 'W';
+		}
+		return bs;
+	}
+
+	/** Waits until the protocol has replied with a best move, and returns all replies. **/
+	private String[] awaitBestMove() {
+		return assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+			while (!lastLine().startsWith("bestmove ")) {
+				Thread.sleep(10);
+			}
+			return lines();
+		});
+	}
+
+	private String[] lines() {
+		return bytes.toString(StandardCharsets.UTF_8).split("\\R");
+	}
+
+	private String lastLine() {
+		String[] lines = lines();
+		return lines[lines.length - 1];
+	}
+}
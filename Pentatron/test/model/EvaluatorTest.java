@@ -0,0 +1,86 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the LINES heuristic treats both colors alike: a board scores
+ * 	the opposite for the other color, the same for the other color once the
+ * 	tiles swap colors, and the same on all its symmetric images.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class EvaluatorTest {
+
+	@Test
+	public void linesScoreTheColorsAlike() {
+		Random random = new Random(10);
+		for (int i = 0; i < 500; i++) {
+			BoardState bs = randomBoard(random, random.nextInt(30));
+			int white = Evaluator.LINES.evaluate(bs, 'W');
+			assertEquals(-white, Evaluator.LINES.evaluate(bs, 'B'), "board " + i);
+			assertEquals(white, Evaluator.LINES.evaluate(swapped(bs), 'B'), "board " + i);
+			assertTrue(Math.abs(white) < AlphaBeta.WIN, "board " + i);
+			for (int s = 1; s < Symmetry.COUNT; s++) {
+				assertEquals(white, Evaluator.LINES.evaluate(image(bs, s), 'W'), "board " + i + " symmetry " + s);
+			}
+		}
+	}
+
+	@Test
+	public void blockedLinesScoreNothing() {
+		// Four white tiles on the top row, but blocked by a black one
+		BoardState bs = new BoardState();
+		place(bs, 1L << 0 | 1L << 1 | 1L << 2 | 1L << 9, 'W');
+		int open = Evaluator.LINES.evaluate(bs, 'W');
+		place(bs, 1L << 10, 'B');
+		assertTrue(Evaluator.LINES.evaluate(bs, 'W') < open);
+	}
+
+	/** Returns a new board with the colors of the tiles swapped. **/
+	private static BoardState swapped(BoardState bs) {
+		BoardState swapped = new BoardState();
+		place(swapped, bs.getBlack(), 'W');
+		place(swapped, bs.getWhite(), 'B');
+		return swapped;
+	}
+
+	/** Returns a new board with the tiles of the given board moved by a symmetry. **/
+	private static BoardState image(BoardState bs, int s) {
+		BoardState image = new BoardState();
+		place(image, Symmetry.transform(s, bs.getWhite()), 'W');
+		place(image, Symmetry.transform(s, bs.getBlack()), 'B');
+		return image;
+	}
+
+	private static void place(BoardState bs, long tiles, char color) {
+		while (tiles != 0) {
+			int square = Long.numberOfTrailingZeros(tiles);
+			tiles &= tiles - 1;
+			bs.placeTile(square / 9, square % 9, color);
+		}
+	}
+
+	/** Returns a board with the given number of tiles played at random, not over. **/
+	private static BoardState randomBoard(Random random, int tiles) {
+		int[] moves = new int[Move.COUNT];
+		while (true) {
+			BoardState bs = new BoardState();
+			char color = 'W';
+			boolean over = false;
+			for (int i = 0; i < tiles && !over; i++) {
+				int count = bs.generateMoves(moves, color);
+				over = bs.makeMove(moves[random.nextInt(count)], color);
+				color = (color == 'W') ? 'B' : 'W';
+			}
+			if (!over) {
+				return bs;
+			}
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Plays whole games against the game server over a socket, with either
+ * 	color, one after the other on one connection.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class GameServerTest {
+
+	private GameServer server;
+	private Socket socket;
+	private BufferedReader in;
+	private PrintWriter out;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		server = new GameServer(0, 1, 3000, 100);
+		Thread accepting = new Thread(server::run, "pentatron-server");
+		accepting.setDaemon(true);
+		accepting.start();
+		socket = new Socket("localhost", server.getPort());
+		in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		socket.close();
+		server.close();
+	}
+
+	@Test
+	public void playsGamesWithEitherColor() {
+		assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+			// The client plays the first move it finds, which Pentatron should beat
+			assertEquals("over B", play('W', "first"));
+			assertEquals("over W", play('B', "first"));
+			assertEquals("over B", play('W', "second"));
+			out.println("quit");
+			assertEquals(null, in.readLine());
+		});
+	}
+
+	@Test
+	public void repliesWithErrors() throws IOException {
+		out.println("move 1/5 2r");
+		assertEquals("error not your turn", in.readLine());
+		out.println("new W");
+		assertTrue(in.readLine().startsWith("error expected new"));
+		out.println("new W first");
+		assertEquals("ok", in.readLine());
+		out.println("move 1/5 5r");
+		assertTrue(in.readLine().startsWith("error "));
+		out.println("dance");
+		assertEquals("error unknown command dance", in.readLine());
+	}
+
+	@Test
+	public void closingEndsSessionsWithQueuedSearches() throws Exception {
+		// One worker and long moves, so a second game's search waits in the queue
+		GameServer slow = new GameServer(0, 1, 1000000, 1500);
+		Thread accepting = new Thread(slow::run, "pentatron-server");
+		accepting.setDaemon(true);
+		accepting.start();
+		try (Socket searching = new Socket("localhost", slow.getPort());
+				Socket queued = new Socket("localhost", slow.getPort())) {
+			BufferedReader searchingIn = start(searching);
+			Thread.sleep(300);
+			BufferedReader queuedIn = start(queued);
+			Thread.sleep(300);
+			slow.close();
+
+			assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+				assertEquals("error server closing", queuedIn.readLine());
+				assertEquals(null, queuedIn.readLine());
+				// The running search still ends with a move
+				assertTrue(searchingIn.readLine().startsWith("move "));
+				assertEquals(null, searchingIn.readLine());
+			});
+		}
+	}
+
+	/** Starts a game on a new connection and plays a first move, so Pentatron searches. **/
+	private static BufferedReader start(Socket socket) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+		out.println("new W first");
+		assertEquals("ok", in.readLine());
+		out.println("move 1/5 2r");
+		return in;
+	}
+
+	/**
+	 * Plays a game as the given color until it is over, checking that every
+	 * 	board sent is the client's turn and every move of Pentatron can be
+	 * 	read. Returns the line ending the game.
+	 */
+	private String play(char color, String order) throws IOException {
+		out.println("new " + color + " " + order);
+		assertEquals("ok", in.readLine());
+		int[] moves = new int[Move.COUNT];
+		out.println("board");
+		String line;
+		while (!(line = in.readLine()).startsWith("over ")) {
+			String[] words = line.split(" ");
+			if (words[0].equals("board")) {
+				assertEquals(String.valueOf(color), words[2], line);
+				EngineProtocol.parseTiles(words[1]).generateMoves(moves, color);
+				out.println("move " + Move.toString(moves[0]));
+				out.println("board");
+			} else {
+				assertEquals("move", words[0], line);
+				assertEquals(3, words.length, line);
+				EngineProtocol.parseMove(words[1], words[2]);
+			}
+		}
+		// The board asked for after the last move comes after the end of the game
+		assertTrue(in.readLine().endsWith(" ."));
+		return line;
+	}
+}
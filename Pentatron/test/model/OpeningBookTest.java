@@ -0,0 +1,66 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that a book file that is not a book, or is cut short, fails to
+ * 	open, and that openOrEmpty plays on without it.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class OpeningBookTest {
+
+	private static final int MAGIC = 0x50424B31;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void readsAWholeBook() throws IOException {
+		Path file = book(1, 1);
+		assertEquals(1, OpeningBook.open(file.toString()).size());
+		assertEquals(1, OpeningBook.openOrEmpty(file.toString()).size());
+	}
+
+	@Test
+	public void badBooksGiveAnEmptyBook() throws IOException {
+		Path garbage = dir.resolve("garbage.book");
+		Files.write(garbage, "not a book at all".getBytes());
+		Path truncated = book(3, 1);
+		for (Path file : new Path[] {garbage, truncated}) {
+			assertThrows(IllegalStateException.class, () -> OpeningBook.open(file.toString()));
+			OpeningBook book = OpeningBook.openOrEmpty(file.toString());
+			assertEquals(0, book.size());
+			assertEquals(Move.NONE, book.lookup(new BoardState(), 'W'));
+		}
+	}
+
+	@Test
+	public void missingBookIsEmpty() {
+		assertEquals(0, OpeningBook.open(dir.resolve("missing.book").toString()).size());
+	}
+
+	/** Writes a book whose header counts the given entries but that holds only written of them. **/
+	private Path book(int count, int written) throws IOException {
+		Path file = dir.resolve("test.book");
+		try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+			out.writeInt(MAGIC);
+			out.writeInt(count);
+			for (int i = 0; i < written; i++) {
+				out.writeLong(i);
+				out.writeShort(0);
+			}
+		}
+		return file;
+	}
+}
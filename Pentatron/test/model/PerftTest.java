@@ -0,0 +1,134 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the move generator against known perft counts, and the children of
+ * 	boards against every placement and rotation tried one by one.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class PerftTest {
+
+	/** Boards, as the moves played from an empty board by White then Black. **/
+	private static final String[][] BOARDS = {
+		{},
+		{"1/5 2r", "4/5 1l"},
+		// White to move can win on the spot
+		{"1/1 3r", "4/9 3r", "1/2 3r", "4/8 3r", "1/3 3r", "4/7 3r", "2/1 3r", "4/3 3r"},
+		{"1/5 2r", "4/5 1l", "2/5 3r", "3/5 4l", "1/1 4r", "2/9 1l", "3/1 2l", "4/9 3r",
+			"1/9 2l", "4/7 3l", "1/2 2r", "3/4 1l", "4/6 3r", "2/9 4l", "1/1 2l", "3/8 3r"},
+	};
+
+	/** Perft counts of each board at depth 1, 2 and 3, checked by brute force. **/
+	private static final long[][] COUNTS = {
+		{36, 3500, 504792},
+		{34, 3234, 450304},
+		{187, 36504, 7003716},
+		{159, 23375, 3279750},
+	};
+
+	@Test
+	public void perftMatchesReferenceCounts() {
+		for (int i = 0; i < BOARDS.length; i++) {
+			BoardState board = board(BOARDS[i]);
+			char color = toMove(BOARDS[i]);
+			for (int depth = 1; depth <= COUNTS[i].length; depth++) {
+				assertEquals(COUNTS[i][depth - 1], Perft.perft(board, color, depth),
+						"board " + i + " depth " + depth);
+			}
+		}
+	}
+
+	@Test
+	public void divideAddsUpToPerft() {
+		BoardState board = board(BOARDS[1]);
+		int[] moves = new int[Move.COUNT];
+		long[] counts = Perft.divide(board, 'W', 3, moves, 2);
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		assertEquals(COUNTS[1][2], total);
+		assertEquals(COUNTS[1][0], counts.length);
+	}
+
+	@Test
+	public void childrenMatchBruteForce() {
+		for (String[] moves : BOARDS) {
+			checkChildren(board(moves), toMove(moves));
+		}
+
+		Random random = new Random(22);
+		int[] moves = new int[Move.COUNT];
+		for (int game = 0; game < 50; game++) {
+			BoardState board = new BoardState();
+			char color = 'W';
+			while (true) {
+				checkChildren(board, color);
+				if (board.makeMove(moves[random.nextInt(board.generateMoves(moves, color))], color)) {
+					break;
+				}
+				color = (color == 'W') ? 'B' : 'W';
+			}
+		}
+	}
+
+	/**
+	 * Checks that the children of a board are exactly the distinct boards
+	 * 	reached by placing a tile on each empty square, then, unless the game is
+	 * 	over, turning each block each way.
+	 */
+	private static void checkChildren(BoardState board, char color) {
+		Set<String> expected = new HashSet<>();
+		for (int block = 0; block < 4; block++) {
+			for (int pos = 0; pos < 9; pos++) {
+				if (board.getTile(block, pos) != '.') {
+					continue;
+				}
+				for (int rotBlock = 0; rotBlock < 4; rotBlock++) {
+					for (char rot : new char[] {'r', 'l'}) {
+						BoardState child = new BoardState(board);
+						child.placeTile(block, pos, color);
+						if (!child.isGameOver(block, pos, -1)) {
+							child.rotateBlock(rotBlock, rot);
+						}
+						expected.add(key(child));
+					}
+				}
+			}
+		}
+
+		Set<String> children = new HashSet<>();
+		for (BoardState child : board.getChildren(color)) {
+			assertTrue(children.add(key(child)), "duplicate child");
+		}
+		assertEquals(expected, children);
+	}
+
+	private static String key(BoardState board) {
+		return board.getWhite() + "/" + board.getBlack();
+	}
+
+	private static BoardState board(String[] moves) {
+		BoardState board = new BoardState();
+		char color = 'W';
+		for (String move : moves) {
+			board.makeMove(Move.parse(move), color);
+			color = (color == 'W') ? 'B' : 'W';
+		}
+		return board;
+	}
+
+	private static char toMove(String[] moves) {
+		return (moves.length % 2 == 0) ? 'W' : 'B';
+	}
+}
@@ -0,0 +1,157 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the proof-number solver against a plain search of every move to the
+ * 	end of the game, on late boards that are won, drawn and lost, and that it
+ * 	keeps a stop that comes before it starts.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class ProofNumberSearchTest {
+
+	private static final int EMPTY = 5;
+
+	@Test
+	public void solvesAFourInARow() {
+		// White has four of the top row and the fifth square free
+		BoardState bs = new BoardState();
+		for (int pos = 0; pos < 3; pos++) {
+			bs.placeTile(0, pos, 'W');
+			bs.placeTile(2, pos, 'B');
+		}
+		bs.placeTile(1, 0, 'W');
+		bs.placeTile(3, 0, 'B');
+		ProofNumberSearch solver = new ProofNumberSearch(16);
+		assertEquals(ProofNumberSearch.WIN, solver.solve(bs, 'W'));
+		assertTrue(bs.makeMove(solver.getBestMove(), 'W'));
+		assertEquals('W', bs.getWinner());
+	}
+
+	@Test
+	public void solvesLateBoardsLikeAFullSearch() {
+		Random random = new Random(15);
+		ProofNumberSearch solver = new ProofNumberSearch(16);
+		int[] seen = new int[3];
+		for (int i = 0; i < 100; i++) {
+			BoardState bs = randomBoard(random, 36 - EMPTY);
+			char color = (EMPTY % 2 == 0) ? 'W' : 'B';
+			int expected = fullSearch(bs, color);
+			int result = solver.solve(bs, color);
+			assertEquals(expected, result, "board " + i);
+			seen[result]++;
+
+			// The move found reaches the result
+			if (result != ProofNumberSearch.LOSS) {
+				boolean over = bs.makeMove(solver.getBestMove(), color);
+				char other = (color == 'W') ? 'B' : 'W';
+				int reached = over ? outcome(bs.getWinner(), color) : ProofNumberSearch.WIN - fullSearch(bs, other);
+				assertEquals(result, reached, "board " + i);
+			}
+		}
+		for (int result = ProofNumberSearch.LOSS; result <= ProofNumberSearch.WIN; result++) {
+			assertTrue(seen[result] > 0, "no board with result " + result);
+		}
+	}
+
+	@Test
+	public void lostBoardsHoldOutAsLongAsTheyCan() {
+		Random random = new Random(16);
+		ProofNumberSearch solver = new ProofNumberSearch(16);
+		int lost = 0;
+		for (int i = 0; i < 300; i++) {
+			BoardState bs = randomBoard(random, 36 - EMPTY);
+			char color = (EMPTY % 2 == 0) ? 'W' : 'B';
+			if (solver.solve(bs, color) != ProofNumberSearch.LOSS) {
+				continue;
+			}
+			lost++;
+			// If any move keeps the opponent from winning at once, the move found does
+			int[] moves = new int[Move.COUNT];
+			int count = bs.generateMoves(moves, color);
+			boolean canHoldOut = false;
+			for (int j = 0; j < count; j++) {
+				canHoldOut |= holdsOut(bs, moves[j], color);
+			}
+			assertEquals(canHoldOut, holdsOut(bs, solver.getBestMove(), color), "board " + i);
+		}
+		assertTrue(lost > 0);
+	}
+
+	@Test
+	public void stopBeforeSolvingIsKept() {
+		// A won board that takes far more than 1024 nodes, when the solver first checks for a stop
+		BoardState bs = randomBoard(new Random(22), 24);
+		ProofNumberSearch solver = new ProofNumberSearch(16);
+		solver.stop();
+		assertEquals(ProofNumberSearch.UNKNOWN, solver.solve(bs, 'W'));
+		solver.resume();
+		assertEquals(ProofNumberSearch.WIN, solver.solve(bs, 'W'));
+		assertTrue(solver.getNodes() > 1024);
+	}
+
+	/** Returns true if the move neither loses at once nor lets the opponent win with the next move. **/
+	private static boolean holdsOut(BoardState bs, int move, char color) {
+		char other = (color == 'W') ? 'B' : 'W';
+		boolean holds = !bs.makeMove(move, color);
+		if (holds) {
+			int[] replies = new int[Move.COUNT];
+			int count = bs.generateMoves(replies, other);
+			for (int i = 0; i < count && holds; i++) {
+				holds = !(bs.makeMove(replies[i], other) && bs.getWinner() == other);
+				bs.unmakeMove();
+			}
+		}
+		bs.unmakeMove();
+		return holds;
+	}
+
+	/** Returns WIN, DRAW or LOSS for the color to move, searching every move to the end. **/
+	private static int fullSearch(BoardState bs, char color) {
+		char other = (color == 'W') ? 'B' : 'W';
+		int[] moves = new int[Move.COUNT];
+		int count = bs.generateMoves(moves, color);
+		int best = ProofNumberSearch.LOSS;
+		for (int i = 0; i < count && best != ProofNumberSearch.WIN; i++) {
+			int result;
+			if (bs.makeMove(moves[i], color)) {
+				result = outcome(bs.getWinner(), color);
+			} else {
+				result = ProofNumberSearch.WIN - fullSearch(bs, other);
+			}
+			bs.unmakeMove();
+			best = Math.max(best, result);
+		}
+		return best;
+	}
+
+	/** Returns the result of a finished game for the given color. **/
+	private static int outcome(char winner, char color) {
+		return (winner == color) ? ProofNumberSearch.WIN : (winner == '.') ? ProofNumberSearch.DRAW : ProofNumberSearch.LOSS;
+	}
+
+	/** Returns a board with the given number of tiles played at random, not over. **/
+	private static BoardState randomBoard(Random random, int tiles) {
+		int[] moves = new int[Move.COUNT];
+		while (true) {
+			BoardState bs = new BoardState();
+			char color = 'W';
+			boolean over = false;
+			for (int i = 0; i < tiles && !over; i++) {
+				int count = bs.generateMoves(moves, color);
+				over = bs.makeMove(moves[random.nextInt(count)], color);
+				color = (color == 'W') ? 'B' : 'W';
+			}
+			if (!over) {
+				return bs;
+			}
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the search scheduler runs queued searches by the worker time
+ * 	their clients used, and cancels them when shut down.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class SearchSchedulerTest {
+
+	private SearchScheduler scheduler;
+	private ExecutorService callers;
+	private CountDownLatch started;
+	private CountDownLatch release;
+
+	@BeforeEach
+	public void setUp() {
+		scheduler = new SearchScheduler(1);
+		callers = Executors.newCachedThreadPool();
+		started = new CountDownLatch(1);
+		release = new CountDownLatch(1);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		release.countDown();
+		scheduler.shutdown();
+		callers.shutdownNow();
+	}
+
+	@Test
+	public void countsTheTimeSearchesRun() throws Exception {
+		SearchScheduler.Client client = new SearchScheduler.Client();
+		scheduler.run(client, () -> {
+			Thread.sleep(20);
+			return 0;
+		});
+		assertTrue(client.getUsedNanos() >= 20000000L, "counted before the result is given");
+		client.reset();
+		assertEquals(0, client.getUsedNanos());
+	}
+
+	@Test
+	public void runsTheClientThatUsedLeastFirst() throws Exception {
+		SearchScheduler.Client busy = new SearchScheduler.Client();
+		SearchScheduler.Client fresh = new SearchScheduler.Client();
+		scheduler.run(busy, () -> {
+			Thread.sleep(20);
+			return 0;
+		});
+
+		List<String> order = new CopyOnWriteArrayList<>();
+		CompletableFuture<Object> blocker = occupyWorker();
+		CompletableFuture<Object> first = runLater(busy, () -> order.add("busy"), 1);
+		CompletableFuture<Object> second = runLater(fresh, () -> order.add("fresh"), 2);
+		release.countDown();
+		assertTimeoutPreemptively(Duration.ofSeconds(10), () -> CompletableFuture.allOf(blocker, first, second).join());
+		assertEquals(List.of("fresh", "busy"), order);
+	}
+
+	@Test
+	public void shutdownCancelsQueuedSearches() throws Exception {
+		CompletableFuture<Object> blocker = occupyWorker();
+		CompletableFuture<Object> queued = runLater(new SearchScheduler.Client(), () -> true, 1);
+		scheduler.shutdown();
+		ExecutionException e = assertThrows(ExecutionException.class,
+				() -> assertTimeoutPreemptively(Duration.ofSeconds(10), () -> queued.get()));
+		assertTrue(e.getCause() instanceof CancellationException, e.getCause().toString());
+		assertThrows(ExecutionException.class, () -> blocker.get());
+	}
+
+	/** Runs a search on the only worker that waits until released, and returns once it runs. **/
+	private CompletableFuture<Object> occupyWorker() throws InterruptedException {
+		CompletableFuture<Object> blocker = CompletableFuture.supplyAsync(() -> call(new SearchScheduler.Client(), () -> {
+			started.countDown();
+			release.await();
+			return true;
+		}), callers);
+		started.await();
+		return blocker;
+	}
+
+	/** Queues a search from another thread, and returns once the queue holds the given number. **/
+	private CompletableFuture<Object> runLater(SearchScheduler.Client client, Callable<Object> search, int queued)
+			throws InterruptedException {
+		CompletableFuture<Object> result = CompletableFuture.supplyAsync(() -> call(client, search), callers);
+		while (scheduler.getQueued() < queued) {
+			Thread.sleep(1);
+		}
+		return result;
+	}
+
+	/** Runs a search on the scheduler and waits for it. **/
+	private Object call(SearchScheduler.Client client, Callable<Object> search) {
+		try {
+			return scheduler.run(client, search);
+		} catch (InterruptedException | ExecutionException e) {
+			throw new CompletionException(e);
+		}
+	}
+}
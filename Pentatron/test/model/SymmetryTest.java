@@ -0,0 +1,113 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the 8 board symmetries: that each is undone by its inverse, that
+ * 	moves transform along with the boards they are played on, and that all
+ * 	images of a board share its canonical hash.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+public class SymmetryTest {
+
+	private static final long FULL = (1L << 36) - 1;
+
+	@Test
+	public void inverseUndoesEachSymmetry() {
+		Random random = new Random(6);
+		for (int s = 0; s < Symmetry.COUNT; s++) {
+			for (int i = 0; i < 1000; i++) {
+				long mask = random.nextLong() & FULL;
+				assertEquals(mask, Symmetry.transform(Symmetry.inverse(s), Symmetry.transform(s, mask)), "symmetry " + s);
+			}
+			for (int move = 0; move < Move.COUNT; move++) {
+				assertEquals(move, Symmetry.transformMove(Symmetry.inverse(s), Symmetry.transformMove(s, move)), "symmetry " + s);
+			}
+		}
+	}
+
+	@Test
+	public void symmetriesAreTheEightDistinctOnes() {
+		// A board with no symmetry of its own has 8 different images
+		long mask = 1L | 1L << 1 | 1L << 9 | 1L << 20;
+		Set<Long> images = new HashSet<>();
+		for (int s = 0; s < Symmetry.COUNT; s++) {
+			images.add(Symmetry.transform(s, mask));
+			assertEquals(Long.bitCount(mask), Long.bitCount(Symmetry.transform(s, mask)));
+		}
+		assertEquals(Symmetry.COUNT, images.size());
+	}
+
+	@Test
+	public void transformedMoveGivesTheTransformedBoard() {
+		Random random = new Random(7);
+		int[] moves = new int[Move.COUNT];
+		for (int i = 0; i < 300; i++) {
+			BoardState bs = randomBoard(random, random.nextInt(20));
+			char color = (Long.bitCount(bs.getWhite() | bs.getBlack()) % 2 == 0) ? 'W' : 'B';
+			int count = bs.generateMoves(moves, color);
+			int move = moves[random.nextInt(count)];
+			for (int s = 0; s < Symmetry.COUNT; s++) {
+				BoardState image = image(bs, s);
+				boolean over = bs.makeMove(move, color);
+				assertEquals(over, image.makeMove(Symmetry.transformMove(s, move), color));
+				assertEquals(Symmetry.transform(s, bs.getWhite()), image.getWhite(), "symmetry " + s);
+				assertEquals(Symmetry.transform(s, bs.getBlack()), image.getBlack(), "symmetry " + s);
+				bs.unmakeMove();
+			}
+		}
+	}
+
+	@Test
+	public void imagesShareTheCanonicalHash() {
+		Random random = new Random(8);
+		for (int i = 0; i < 300; i++) {
+			BoardState bs = randomBoard(random, random.nextInt(30));
+			for (int s = 0; s < Symmetry.COUNT; s++) {
+				assertEquals(bs.getCanonicalHash(), image(bs, s).getCanonicalHash(), "symmetry " + s);
+			}
+		}
+	}
+
+	/** Returns a new board with the tiles of the given board moved by a symmetry. **/
+	private static BoardState image(BoardState bs, int s) {
+		BoardState image = new BoardState();
+		place(image, Symmetry.transform(s, bs.getWhite()), 'W');
+		place(image, Symmetry.transform(s, bs.getBlack()), 'B');
+		return image;
+	}
+
+	private static void place(BoardState bs, long tiles, char color) {
+		while (tiles != 0) {
+			int square = Long.numberOfTrailingZeros(tiles);
+			tiles &= tiles - 1;
+			bs.placeTile(square / 9, square % 9, color);
+		}
+	}
+
+	/** Returns a board with the given number of tiles played at random, not over. **/
+	private static BoardState randomBoard(Random random, int tiles) {
+		int[] moves = new int[Move.COUNT];
+		while (true) {
+			BoardState bs = new BoardState();
+			char color = 'W';
+			boolean over = false;
+			for (int i = 0; i < tiles && !over; i++) {
+				int count = bs.generateMoves(moves, color);
+				over = bs.makeMove(moves[random.nextInt(count)], color);
+				color = (color == 'W') ? 'B' : 'W';
+			}
+			if (!over) {
+				return bs;
+			}
+		}
+	}
+}
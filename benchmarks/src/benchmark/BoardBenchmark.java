@@ -0,0 +1,78 @@
+package benchmark;
+
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.BoardState;
+import model.Move;
+
+/**
+ * Operations per second of the board operations the search spends its time
+ * 	in. Run with -prof gc to see how much each allocates.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+
+	/** Board number in Positions. **/
+	@Param({"0", "1", "2", "3"})
+	public int position;
+
+	private BoardState board;
+	private char color;
+	private int[] moves;
+
+	@Setup
+	public void setUp() {
+		board = Positions.board(position);
+		color = Positions.toMove(position);
+		moves = new int[Move.COUNT];
+	}
+
+	@Benchmark
+	public Queue<BoardState> getChildren() {
+		return board.getChildren(color);
+	}
+
+	@Benchmark
+	public int generateMoves() {
+		return board.generateMoves(moves, color);
+	}
+
+	/** Turns a block and back, leaving the board as it was. **/
+	@Benchmark
+	public long rotateBlock() {
+		board.rotateBlock(0, 'r');
+		board.rotateBlock(0, 'l');
+		return board.getHash();
+	}
+
+	@Benchmark
+	public boolean isGameOver() {
+		return board.isGameOver();
+	}
+
+	@Benchmark
+	public int calculateHeuristic() {
+		return board.calculateHeuristic(color);
+	}
+}
@@ -0,0 +1,57 @@
+package benchmark;
+
+import model.BoardState;
+import model.Evaluator;
+import model.Move;
+
+/**
+ * The fixed boards every benchmark runs on, from the empty board to a crowded
+ * 	late board, so results stay comparable from change to change.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+final class Positions {
+
+	/** Boards, as the moves played from an empty board by White then Black. **/
+	private static final String[][] MOVES = {
+		{},
+		{"1/5 2r", "4/5 1l"},
+		{"1/5 2r", "4/5 1l", "2/5 3r", "3/5 4l", "1/1 4r", "2/9 1l"},
+		{"1/5 2r", "4/5 1l", "2/5 3r", "3/5 4l", "1/1 4r", "2/9 1l", "3/1 2l", "4/9 3r",
+			"1/9 2l", "4/7 3l", "1/2 2r", "3/4 1l", "4/6 3r", "2/9 4l", "1/1 2l", "3/8 3r"},
+	};
+
+	/** Number of boards. **/
+	static final int COUNT = MOVES.length;
+
+	private Positions() {
+	}
+
+	/**
+	 * Returns a new copy of a board, scored with the evaluator the game uses.
+	 *
+	 * @param index board number, from 0 to COUNT - 1
+	 * @return the board
+	 */
+	static BoardState board(int index) {
+		BoardState board = new BoardState();
+		board.setEvaluator(Evaluator.LINES);
+		char color = 'W';
+		for (String move : MOVES[index]) {
+			board.makeMove(Move.parse(move), color);
+			color = (color == 'W') ? 'B' : 'W';
+		}
+		return board;
+	}
+
+	/**
+	 * Returns the color to move on a board.
+	 *
+	 * @param index board number, from 0 to COUNT - 1
+	 * @return 'W' or 'B'
+	 */
+	static char toMove(int index) {
+		return (MOVES[index].length % 2 == 0) ? 'W' : 'B';
+	}
+}
@@ -0,0 +1,86 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.AlphaBeta;
+import model.BoardState;
+import model.TranspositionTable;
+
+/**
+ * Full alpha-beta searches of fixed depth. Reports searches per second, and
+ * 	as the secondary result "nodes", boards visited per second. Each search
+ * 	starts from an empty transposition table; the searcher keeps its move
+ * 	ordering between searches, as it does between iterations in a game.
+ *
+ * @author Trevor N. Lowe
+ * @version 1
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark {
+
+	/** Board number in Positions. **/
+	@Param({"0", "1", "2", "3"})
+	public int position;
+
+	/** Look-ahead of each search. **/
+	@Param({"2", "3"})
+	public int depth;
+
+	private BoardState board;
+	private boolean maxPlayer;
+	private TranspositionTable table;
+	private AlphaBeta searcher;
+
+	/** Boards visited, reported per second next to the searches. **/
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Nodes {
+		public long nodes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			nodes = 0;
+		}
+	}
+
+	@Setup
+	public void setUp() {
+		board = Positions.board(position);
+		maxPlayer = Positions.toMove(position) == 'W';
+		table = new TranspositionTable(18);
+		searcher = new AlphaBeta('W', 'B', table);
+	}
+
+	/** Empties the table outside the measured time; clearing 4 MB costs more than a shallow search. **/
+	@Setup(Level.Invocation)
+	public void clearTable() {
+		table.clear();
+	}
+
+	@Benchmark
+	public int alphabeta(Nodes counter) {
+		searcher.resetNodes();
+		int score = searcher.search(board, depth, maxPlayer);
+		counter.nodes += searcher.getNodes();
+		return score;
+	}
+}